@@ -0,0 +1,184 @@
+package mx.simio.apidemo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load test of the running application over HTTP, comparing request handling on Tomcat's platform
+ * thread pool with virtual threads. Each benchmark thread is one client sending requests back to
+ * back; throughput mode gives requests per millisecond and sample mode the latency percentiles,
+ * p99 included.
+ *
+ * <p>The journal backend forces every create to disk, so creates block on I/O while holding a
+ * request thread. Lower {@code maxThreads} (e.g. {@code -p maxThreads=8}) to see the platform pool
+ * saturate with more clients than threads, which the virtual thread mode avoids. Virtual threads
+ * need Java 21; on older JVMs both modes use the platform pool. {@code createReservationAsync}
+ * goes through the asynchronous endpoint instead, which releases the request thread while the
+ * change is persisted.
+ *
+ * <p>The application runs in its own JVM so that the clients do not share its heap and CPU time
+ * with it. {@code gradlew jmh} passes the application's classpath in the
+ * {@value #CLASSPATH_PROPERTY} system property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class ReservationHttpBenchmark {
+
+  static final String CLASSPATH_PROPERTY = "benchmark.classpath";
+  private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(1);
+  private static final int PRELOADED = 1_000;
+  private static final int ROOMS = 10_000;
+  private static final LocalDate FIRST_NIGHT = LocalDate.of(2030, 1, 1);
+
+  @Param({"false", "true"})
+  String virtualThreads;
+
+  @Param({"200"})
+  String maxThreads;
+
+  private Path directory;
+  private Process application;
+  private HttpClient client;
+  private URI reservations;
+  private final AtomicInteger created = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, InterruptedException {
+    String classpath = System.getProperty(CLASSPATH_PROPERTY);
+    if (classpath == null) {
+      throw new IllegalStateException("Missing -D" + CLASSPATH_PROPERTY + ", run with gradlew jmh");
+    }
+    directory = Files.createTempDirectory("reservation-http-benchmark");
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    application = new ProcessBuilder(List.of(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-Xms1g", "-Xmx1g",
+        "-cp", classpath,
+        ApiDemoApplication.class.getName(),
+        "--server.port=" + port,
+        "--spring.threads.virtual.enabled=" + virtualThreads,
+        "--server.tomcat.threads.max=" + maxThreads,
+        "--file.backend=journal",
+        "--file.path=" + directory.resolve("reservations.txt"),
+        "--logging.level.root=WARN"))
+        .redirectErrorStream(true)
+        .redirectOutput(directory.resolve("application.log").toFile())
+        .start();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    awaitStartup(URI.create("http://localhost:" + port + "/actuator/health"));
+    reservations = URI.create("http://localhost:" + port + "/api/v1/reservations");
+
+    StringJoiner batch = new StringJoiner(",", "[", "]");
+    for (int i = 0; i < PRELOADED; i++) {
+      batch.add(body(nextBooking()));
+    }
+    send(HttpRequest.newBuilder(reservations.resolve("reservations/batch"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+        .build());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException, InterruptedException {
+    application.destroy();
+    application.waitFor();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public int createReservation() throws IOException, InterruptedException {
+    return send(HttpRequest.newBuilder(reservations)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body(nextBooking())))
+        .build());
+  }
+
+  @Benchmark
+  public int createReservationAsync() throws IOException, InterruptedException {
+    return send(HttpRequest.newBuilder(reservations.resolve("reservations/async"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body(nextBooking())))
+        .build());
+  }
+
+  @Benchmark
+  public int getReservation() throws IOException, InterruptedException {
+    int id = ThreadLocalRandom.current().nextInt(PRELOADED) + 1;
+    return send(HttpRequest.newBuilder(reservations.resolve("reservations/" + id)).GET().build());
+  }
+
+  private void awaitStartup(URI health) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!application.isAlive()) {
+        throw new IllegalStateException("The application exited, see "
+            + directory.resolve("application.log"));
+      }
+      try {
+        send(HttpRequest.newBuilder(health).GET().build());
+        return;
+      } catch (IOException | IllegalStateException e) {
+        Thread.sleep(200);
+      }
+    }
+    throw new IllegalStateException("The application did not start within " + STARTUP_TIMEOUT);
+  }
+
+  private int nextBooking() {
+    return created.getAndIncrement();
+  }
+
+  private static String body(int booking) {
+    return "{\"clientFullName\":\"Guest " + booking + "\",\"roomNumber\":" + (booking % ROOMS + 1)
+        + ",\"reservationDates\":[\"" + FIRST_NIGHT.plusDays(booking / ROOMS) + "\"]}";
+  }
+
+  private int send(HttpRequest request) throws IOException, InterruptedException {
+    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(request.method() + " " + request.uri() + " answered "
+          + response.statusCode());
+    }
+    return response.statusCode();
+  }
+}
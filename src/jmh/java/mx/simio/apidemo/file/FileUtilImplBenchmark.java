@@ -0,0 +1,89 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import mx.simio.apidemo.reservation.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full snapshot writes and reads through {@link FileUtilImpl}, on a file in the temporary
+ * directory. {@code readChunks} is the parallel read used on startup, {@code readFromFile} the
+ * sequential one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FileUtilImplBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  int reservationCount;
+
+  private Path directory;
+  private FileUtilImpl writer;
+  private FileUtilImpl reader;
+  private Set<Reservation> reservations;
+
+  @Setup
+  public void setUp() throws IOException {
+    reservations = new HashSet<>();
+    LocalDate firstNight = LocalDate.of(2026, 1, 1);
+    for (int id = 1; id <= reservationCount; id++) {
+      LocalDate checkIn = firstNight.plusDays(id % 365);
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500,
+          List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2))));
+    }
+
+    directory = Files.createTempDirectory("file-util-benchmark");
+    writer = new FileUtilImpl(directory.resolve("written.txt").toString());
+    reader = new FileUtilImpl(directory.resolve("read.txt").toString());
+    reader.writeToFile(reservations);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public void writeToFile() {
+    writer.writeToFile(reservations);
+  }
+
+  @Benchmark
+  public Set<Reservation> readFromFile() {
+    return reader.readFromFile();
+  }
+
+  @Benchmark
+  public long readChunks() {
+    LongAdder read = new LongAdder();
+    reader.readChunks(chunk -> read.add(chunk.size()));
+    return read.sum();
+  }
+}
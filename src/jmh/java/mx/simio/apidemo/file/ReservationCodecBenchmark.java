@@ -0,0 +1,106 @@
+package mx.simio.apidemo.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import mx.simio.apidemo.reservation.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the binary snapshot format with the Java serialization it replaced, encoding to and
+ * decoding from memory so that the disk does not take part. {@code binaryDecodeChunks} decodes
+ * the chunks in parallel the way the startup load does. The size of both encodings is
+ * printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReservationCodecBenchmark {
+
+  @Param({"1000000"})
+  int reservationCount;
+
+  private Set<Reservation> reservations;
+  private byte[] binary;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws IOException {
+    reservations = new HashSet<>();
+    LocalDate firstNight = LocalDate.of(2026, 1, 1);
+    for (int id = 1; id <= reservationCount; id++) {
+      LocalDate checkIn = firstNight.plusDays(id % 365);
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500,
+          List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2))));
+    }
+    binary = encodeBinary();
+    serialized = encodeSerialized();
+    System.out.printf("%nSnapshot of %d reservations: binary %d bytes, serialized %d bytes%n",
+        reservationCount, binary.length, serialized.length);
+  }
+
+  @Benchmark
+  public byte[] binaryEncode() throws IOException {
+    return encodeBinary();
+  }
+
+  @Benchmark
+  public Set<Reservation> binaryDecode() throws IOException {
+    return ReservationCodec.read(new ByteArrayInputStream(binary));
+  }
+
+  @Benchmark
+  public long binaryDecodeChunks() throws IOException {
+    LongAdder decoded = new LongAdder();
+    ReservationCodec.readChunks(ByteBuffer.wrap(binary), chunk -> decoded.add(chunk.size()));
+    return decoded.sum();
+  }
+
+  @Benchmark
+  public byte[] serializationEncode() throws IOException {
+    return encodeSerialized();
+  }
+
+  @Benchmark
+  public Object serializationDecode() throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      return ois.readObject();
+    }
+  }
+
+  private byte[] encodeBinary() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 24);
+    ReservationCodec.write(reservations, out);
+    return out.toByteArray();
+  }
+
+  private byte[] encodeSerialized() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 24);
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(reservations);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,96 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import mx.simio.apidemo.reservation.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes and reads through {@link ShardedFileOperations}, with one shard as the baseline for a
+ * single snapshot file. {@code appendOne} persists a single changed reservation, which appends
+ * one record to the log of its shard and folds that log every 10000 records; {@code writeToFile}
+ * rewrites all the shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ShardedFileOperationsBenchmark {
+
+  @Param({"100000", "1000000"})
+  int reservationCount;
+
+  @Param({"1", "16"})
+  int shards;
+
+  private Path directory;
+  private ShardedFileOperations backend;
+  private Set<Reservation> reservations;
+
+  @Setup
+  public void setUp() throws IOException {
+    reservations = new HashSet<>();
+    LocalDate firstNight = LocalDate.of(2026, 1, 1);
+    for (int id = 1; id <= reservationCount; id++) {
+      LocalDate checkIn = firstNight.plusDays(id % 365);
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500,
+          List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2))));
+    }
+
+    directory = Files.createTempDirectory("sharded-benchmark");
+    backend = new ShardedFileOperations(directory.resolve("reservations.txt").toString(), shards,
+        10000);
+    backend.writeToFile(reservations);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public void writeToFile() {
+    backend.writeToFile(reservations);
+  }
+
+  @Benchmark
+  public void appendOne() {
+    int id = ThreadLocalRandom.current().nextInt(reservationCount) + 1;
+    LocalDate checkIn = LocalDate.of(2026, 1, 1).plusDays(id % 365);
+    backend.appendToFile(new Reservation(id, "Guest " + id, 100 + id % 500,
+        List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2))));
+  }
+
+  @Benchmark
+  public long readChunks() {
+    LongAdder read = new LongAdder();
+    backend.readChunks(chunk -> read.add(chunk.size()));
+    return read.sum();
+  }
+}
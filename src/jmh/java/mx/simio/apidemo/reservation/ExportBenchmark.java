@@ -0,0 +1,133 @@
+package mx.simio.apidemo.reservation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import mx.simio.apidemo.file.FileOperations;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building the list endpoint's response, which materializes every
+ * {@link ReservationResponse} before Jackson writes them, with the NDJSON export, which writes them
+ * one at a time, and with serving the list from {@link ReservationListCache} when nothing changed
+ * since the previous request. Besides the time per full
+ * export, {@code peakRetainedBytes} reports how far the old generation grew above the live data
+ * set during an iteration. The young generation is kept small so that anything held for the
+ * whole export gets promoted and shows up there, while per-record garbage does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Xmn32m", "-XX:+UseSerialGC"})
+public class ExportBenchmark {
+
+  @Param({"100000", "1000000"})
+  int reservationCount;
+
+  private ObjectMapper objectMapper;
+  private ReservationService reservationService;
+  private ReservationListCache reservationListCache;
+  private ReservationController reservationController;
+
+  @Setup
+  public void setUp() {
+    Set<Reservation> reservations = new HashSet<>();
+    LocalDate firstNight = LocalDate.of(2026, 1, 1);
+    for (int id = 1; id <= reservationCount; id++) {
+      LocalDate checkIn = firstNight.plusDays(id % 365);
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500,
+          List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2))));
+    }
+
+    reservationService = new ReservationService(new FileOperations() {
+      @Override
+      public void writeToFile(Set<Reservation> ignored) {
+      }
+
+      @Override
+      public Set<Reservation> readFromFile() {
+        return reservations;
+      }
+    }, Validation.buildDefaultValidatorFactory().getValidator());
+    reservationService.loadData();
+
+    objectMapper = JsonMapper.builder()
+        .findAndAddModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    reservationListCache = new ReservationListCache(reservationService, objectMapper);
+    reservationController = new ReservationController(reservationService, objectMapper,
+        reservationListCache, new AsyncReservationService(reservationService, 1, 1));
+  }
+
+  @Benchmark
+  public void listEndpoint(HeapCounters counters) throws IOException {
+    objectMapper.writeValue(OutputStream.nullOutputStream(),
+        reservationService.getAllReservations());
+  }
+
+  @Benchmark
+  public void cachedListEndpoint(HeapCounters counters) throws IOException {
+    OutputStream.nullOutputStream().write(reservationListCache.get().getJson());
+  }
+
+  @Benchmark
+  public void ndjsonExport(HeapCounters counters) throws IOException {
+    reservationController.exportReservations().getBody()
+        .writeTo(OutputStream.nullOutputStream());
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HeapCounters {
+
+    private static final MemoryPoolMXBean OLD_GENERATION =
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .filter(pool -> pool.getName().contains("Old") || pool.getName().contains("Tenured"))
+            .findFirst()
+            .orElseThrow();
+
+    public long peakRetainedBytes;
+    private long liveBytes;
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+      System.gc();
+      liveBytes = OLD_GENERATION.getUsage().getUsed();
+      OLD_GENERATION.resetPeakUsage();
+      peakRetainedBytes = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordPeak() {
+      peakRetainedBytes = OLD_GENERATION.getPeakUsage().getUsed() - liveBytes;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package mx.simio.apidemo.reservation;
+
+import jakarta.validation.Validation;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import mx.simio.apidemo.file.FileOperations;
+import mx.simio.apidemo.file.IdAllocator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a {@link ReservationService} keeping its reservations on the heap with one keeping them
+ * in an {@link OffHeapReservationTable}. {@code fullGc} times a full collection, whose pause grows
+ * with the live heap, and {@link MemoryCounters} reports the heap and direct memory still in use
+ * after the last one. Reads and updates show what decoding each reservation costs; run with
+ * {@code -prof gc} to see the allocation rate and the collections they cause.
+ *
+ * <p>The preloaded stays do not overlap: each room holds up to {@value #STAYS_PER_ROOM} stays of
+ * three nights back to back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OffHeapStoreBenchmark {
+
+  private static final LocalDate FIRST_NIGHT = LocalDate.of(2026, 1, 1);
+  private static final int STAYS_PER_ROOM = 121;
+
+  @Param({"1000000"})
+  int reservationCount;
+
+  @Param({"false", "true"})
+  boolean offHeap;
+
+  private int rooms;
+  private ReservationService reservationService;
+
+  @Setup
+  public void setUp() {
+    rooms = (reservationCount + STAYS_PER_ROOM - 1) / STAYS_PER_ROOM;
+    Set<Reservation> reservations = new HashSet<>();
+    for (int id = 1; id <= reservationCount; id++) {
+      reservations.add(new Reservation(id, "Guest " + id, room(id), dates(id)));
+    }
+
+    reservationService = new ReservationService(new FileOperations() {
+      @Override
+      public void writeToFile(Set<Reservation> ignored) {
+      }
+
+      @Override
+      public Set<Reservation> readFromFile() {
+        Set<Reservation> loaded = new HashSet<>(reservations);
+        reservations.clear();
+        return loaded;
+      }
+    }, IdAllocator.inMemory(), Validation.buildDefaultValidatorFactory().getValidator(),
+        Duration.ZERO, 1, false, offHeap);
+    reservationService.loadData();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void fullGc(MemoryCounters counters) {
+    System.gc();
+  }
+
+  @Benchmark
+  public ReservationResponse getReservation() {
+    return reservationService.getReservation(
+        ThreadLocalRandom.current().nextInt(reservationCount) + 1);
+  }
+
+  @Benchmark
+  public ReservationResponse updateReservation() {
+    int id = ThreadLocalRandom.current().nextInt(reservationCount) + 1;
+    ReservationRequest request = new ReservationRequest();
+    request.setClientFullName("Guest " + (id + 1));
+    request.setRoomNumber(room(id));
+    request.setReservationDates(dates(id));
+    return reservationService.updateReservation(id, request);
+  }
+
+  private int room(int id) {
+    return 100 + (id - 1) % rooms;
+  }
+
+  private List<LocalDate> dates(int id) {
+    LocalDate checkIn = FIRST_NIGHT.plusDays((long) (id - 1) / rooms * 3);
+    return List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2));
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class MemoryCounters {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final BufferPoolMXBean DIRECT =
+        ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .findFirst()
+            .orElseThrow();
+
+    public long liveHeapBytes;
+    public long directBytes;
+
+    @TearDown(Level.Iteration)
+    public void measure() {
+      liveHeapBytes = MEMORY.getHeapMemoryUsage().getUsed();
+      directBytes = DIRECT.getMemoryUsed();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package mx.simio.apidemo.reservation;
+
+import jakarta.validation.Validation;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import mx.simio.apidemo.file.FileOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and latency percentiles of the main {@link ReservationService} operations against a
+ * store preloaded with {@code reservationCount} reservations. Persistence is a no-op, so only the
+ * in-memory paths are measured; {@code FileUtilImplBenchmark} covers the disk.
+ *
+ * <p>The service is rebuilt for every iteration, so reservations added by
+ * {@link #createReservation()} do not pile up across iterations. Updates rename a random
+ * reservation and keep its room and dates, so they never conflict.
+ *
+ * <p>The preloaded stays do not overlap: each room holds up to {@value #STAYS_PER_ROOM} stays of
+ * three nights back to back, so the store is as full as a year of real bookings could make it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReservationServiceBenchmark {
+
+  private static final LocalDate FIRST_NIGHT = LocalDate.of(2026, 1, 1);
+  private static final int STAYS_PER_ROOM = 121;
+  private static final int FIRST_NEW_ROOM = 10_000;
+  private static final int NEW_ROOMS = 1_000;
+  private static final String[] FIRST_NAMES = {"John", "Jane", "Mar\u00eda", "Jos\u00e9", "Wei",
+      "Aisha", "Olga", "Liam", "Noah", "Emma", "Sof\u00eda", "Lucas", "Mia", "Ahmed", "Yuki",
+      "Chloe", "Mateo", "Ana", "Ivan", "Zoe"};
+  private static final String[] LAST_NAMES = {"Smith", "Garc\u00eda", "M\u00fcller", "Chen",
+      "N\u00fa\u00f1ez", "Kowalski", "Okafor", "Rossi", "Dubois", "Tanaka", "Silva", "Novak",
+      "Johnson", "Hern\u00e1ndez", "Petrov", "Kimura", "Nguyen", "Brown", "L\u00f3pez", "Wilson"};
+
+  @Param({"1000", "100000", "1000000"})
+  int reservationCount;
+
+  private int rooms;
+  private ReservationService reservationService;
+  private final AtomicInteger created = new AtomicInteger();
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    rooms = (reservationCount + STAYS_PER_ROOM - 1) / STAYS_PER_ROOM;
+    Set<Reservation> reservations = new HashSet<>();
+    for (int id = 1; id <= reservationCount; id++) {
+      reservations.add(new Reservation(id, name(id), room(id), dates(id)));
+    }
+
+    reservationService = new ReservationService(new FileOperations() {
+      @Override
+      public void writeToFile(Set<Reservation> ignored) {
+      }
+
+      @Override
+      public Set<Reservation> readFromFile() {
+        return reservations;
+      }
+    }, Validation.buildDefaultValidatorFactory().getValidator());
+    reservationService.loadData();
+    created.set(0);
+  }
+
+  @Benchmark
+  public ReservationResponse createReservation() {
+    int sequence = created.getAndIncrement();
+    return reservationService.createReservation(request("New guest",
+        FIRST_NEW_ROOM + sequence % NEW_ROOMS,
+        List.of(FIRST_NIGHT.plusDays(sequence / NEW_ROOMS))));
+  }
+
+  @Benchmark
+  public ReservationResponse updateReservation() {
+    int id = ThreadLocalRandom.current().nextInt(reservationCount) + 1;
+    return reservationService.updateReservation(id,
+        request(name(id + 1), room(id), dates(id)));
+  }
+
+  @Benchmark
+  public List<ReservationResponse> getAllReservations() {
+    return reservationService.getAllReservations();
+  }
+
+  @Benchmark
+  public List<ReservationResponse> findReservationsOfRoom() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(365));
+    return reservationService.findReservations(100 + random.nextInt(rooms), from,
+        from.plusDays(6));
+  }
+
+  @Benchmark
+  public List<ReservationResponse> findReservationsOnDate() {
+    LocalDate date = FIRST_NIGHT.plusDays(ThreadLocalRandom.current().nextInt(365));
+    return reservationService.findReservations(null, date, date);
+  }
+
+  @Benchmark
+  public OccupancyResponse getOccupancy() {
+    LocalDate from = FIRST_NIGHT.plusDays(ThreadLocalRandom.current().nextInt(365));
+    return reservationService.getOccupancy(from, from.plusDays(29));
+  }
+
+  @Benchmark
+  public List<ReservationResponse> searchByNamePrefix() {
+    int id = ThreadLocalRandom.current().nextInt(reservationCount) + 1;
+    String name = name(id);
+    return reservationService.searchReservations(name.substring(0, name.indexOf(' ') + 3), false,
+        50);
+  }
+
+  @Benchmark
+  public List<ReservationResponse> searchByNameSubstring() {
+    String lastName = LAST_NAMES[ThreadLocalRandom.current().nextInt(LAST_NAMES.length)];
+    return reservationService.searchReservations(lastName.substring(1, 4), true, 50);
+  }
+
+  /**
+   * Names are drawn from a small pool of first and last names, so they repeat like real ones and
+   * a search may match many reservations.
+   */
+  private static String name(int id) {
+    return FIRST_NAMES[id % FIRST_NAMES.length] + " "
+        + LAST_NAMES[(id / FIRST_NAMES.length) % LAST_NAMES.length];
+  }
+
+  private int room(int id) {
+    return 100 + (id - 1) % rooms;
+  }
+
+  private List<LocalDate> dates(int id) {
+    LocalDate checkIn = FIRST_NIGHT.plusDays((long) (id - 1) / rooms * 3);
+    return List.of(checkIn, checkIn.plusDays(1), checkIn.plusDays(2));
+  }
+
+  private static ReservationRequest request(String clientFullName, Integer roomNumber,
+      List<LocalDate> reservationDates) {
+    ReservationRequest reservationRequest = new ReservationRequest();
+    reservationRequest.setClientFullName(clientFullName);
+    reservationRequest.setRoomNumber(roomNumber);
+    reservationRequest.setReservationDates(reservationDates);
+    return reservationRequest;
+  }
+}
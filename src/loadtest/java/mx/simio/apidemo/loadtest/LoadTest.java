@@ -0,0 +1,438 @@
+package mx.simio.apidemo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import mx.simio.apidemo.ApiDemoApplication;
+import mx.simio.apidemo.loadtest.TrafficMix.Operation;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open-loop load test of the running application. It starts the application in its own JVM on a
+ * free port, creates {@link LoadTestOptions#preload} reservations through the batch endpoint, and
+ * then has {@link LoadTestOptions#clients} clients send requests, picked from the
+ * {@link TrafficMix}, at a fixed total rate for the warmup and then for the measured duration.
+ *
+ * <p>Request {@code n} of the test is due {@code n / rate} seconds after the start, and the
+ * clients take turns sending them. A client waits for each response before sending its next
+ * request, so when the application slows down the client falls behind its schedule instead of
+ * sending less, and its next requests go out late. Their response time is measured from when they
+ * were due rather than from when they were sent, so the time spent waiting behind a slow response
+ * is counted instead of hidden, which is what closed-loop tools report as coordinated omission.
+ * The time from sending to the response is recorded separately as the service time.
+ *
+ * <p>Each client records into its own {@link Histogram}s, merged when the test ends. The summary,
+ * with the achieved throughput, the outcome of the requests and the latency percentiles of each
+ * operation, is written to {@code summary.txt} in {@link LoadTestOptions#output}, next to the full
+ * percentile distribution of each operation in HdrHistogram's {@code .hgrm} format and the log of
+ * the application.
+ */
+public final class LoadTest {
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(1);
+  private static final int BATCH_SIZE = 1_000;
+  private static final int PAGE_LIMIT = 50;
+  private static final int MAX_NIGHTS = 7;
+  private static final int BOOKING_DAYS = 365;
+  private static final LocalDate FIRST_NIGHT = LocalDate.of(2030, 1, 1);
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+  private final LoadTestOptions options;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final IdPool ids = new IdPool();
+  private HttpClient client;
+  private URI reservations;
+
+  private LoadTest(LoadTestOptions options) {
+    this.options = options;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new LoadTest(LoadTestOptions.fromSystemProperties()).run();
+  }
+
+  private void run() throws IOException, InterruptedException, ExecutionException {
+    Files.createDirectories(options.output);
+    Path directory = Files.createTempDirectory("reservation-load-test");
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(options.jvmArgs);
+    command.addAll(List.of("-cp", options.classpath, ApiDemoApplication.class.getName(),
+        "--server.port=" + port,
+        "--file.path=" + directory.resolve("reservations.txt"),
+        "--logging.level.root=WARN"));
+    command.addAll(options.applicationArgs);
+    Process application = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(options.output.resolve("application.log").toFile())
+        .start();
+    try {
+      client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      awaitStartup(application, URI.create("http://localhost:" + port + "/actuator/health"));
+      reservations = URI.create("http://localhost:" + port + "/api/v1/reservations");
+      preload();
+      System.out.println("Running " + options);
+      report(drive());
+    } finally {
+      application.destroy();
+      application.waitFor();
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+    }
+  }
+
+  private void awaitStartup(Process application, URI health)
+      throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!application.isAlive()) {
+        throw new IllegalStateException("The application exited, see "
+            + options.output.resolve("application.log"));
+      }
+      try {
+        if (client.send(HttpRequest.newBuilder(health).GET().build(),
+            HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        // Not listening yet
+      }
+      Thread.sleep(200);
+    }
+    throw new IllegalStateException("The application did not start within " + STARTUP_TIMEOUT);
+  }
+
+  /**
+   * Creates the preloaded reservations in batches and keeps the ids of those that did not
+   * conflict.
+   */
+  private void preload() throws IOException, InterruptedException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int created = 0; created < options.preload; created += BATCH_SIZE) {
+      StringJoiner batch = new StringJoiner(",", "[", "]");
+      for (int i = created; i < Math.min(created + BATCH_SIZE, options.preload); i++) {
+        batch.add(body("Guest " + i, random));
+      }
+      HttpResponse<String> response = client.send(post("reservations/batch", batch.toString()),
+          HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        throw new IllegalStateException("Preloading answered " + response.statusCode() + ": "
+            + response.body());
+      }
+      for (JsonNode item : objectMapper.readTree(response.body())) {
+        if (item.path("status").asInt() == 200) {
+          ids.add(item.path("reservation").path("id").asInt());
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the clients through the warmup and the measured duration.
+   *
+   * @return the merged results of the measured requests
+   */
+  private Results drive() throws InterruptedException, ExecutionException {
+    long intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / options.rate);
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+    long measureFrom = start + options.warmup.toNanos();
+    long end = measureFrom + options.duration.toNanos();
+    ExecutorService executor = Executors.newFixedThreadPool(options.clients);
+    try {
+      List<Future<Results>> clients = new ArrayList<>();
+      for (int i = 0; i < options.clients; i++) {
+        int first = i;
+        clients.add(executor.submit(
+            () -> runClient(first, start, intervalNanos, measureFrom, end)));
+      }
+      Results results = new Results(measureFrom);
+      for (Future<Results> result : clients) {
+        results.add(result.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Sends requests {@code first}, {@code first + clients}, {@code first + 2 * clients} and so on,
+   * each when it is due or, if the client is behind, as soon as the previous one is answered.
+   */
+  private Results runClient(int first, long start, long intervalNanos, long measureFrom,
+      long end) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Results results = new Results(measureFrom);
+    for (long request = first; ; request += options.clients) {
+      long due = start + request * intervalNanos;
+      if (due >= end) {
+        return results;
+      }
+      for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+        LockSupport.parkNanos(due - now);
+      }
+      Operation operation = options.mix.next(random);
+      long sent = System.nanoTime();
+      String outcome = send(operation, random);
+      long answered = System.nanoTime();
+      if (due >= measureFrom) {
+        results.record(operation, outcome, answered - due, answered - sent, answered);
+      }
+    }
+  }
+
+  /**
+   * Sends one request.
+   *
+   * @return the status code of the response, or the name of the exception if there was none
+   */
+  private String send(Operation operation, ThreadLocalRandom random) {
+    try {
+      if (operation == Operation.CREATE) {
+        HttpResponse<String> response = client.send(
+            post("", body("Guest " + random.nextInt(1_000_000), random)),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+          ids.add(objectMapper.readTree(response.body()).path("id").asInt());
+        }
+        return String.valueOf(response.statusCode());
+      }
+      HttpRequest request = switch (operation) {
+        case UPDATE -> {
+          int id = ids.pick(random);
+          yield HttpRequest.newBuilder(reservations.resolve("reservations/" + id))
+              .header("Content-Type", "application/json")
+              .PUT(HttpRequest.BodyPublishers.ofString(body("Guest " + id, random)))
+              .build();
+        }
+        case GET -> HttpRequest.newBuilder(
+                reservations.resolve("reservations/" + ids.pick(random)))
+            .GET()
+            .build();
+        case AVAILABILITY -> {
+          LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(BOOKING_DAYS));
+          yield HttpRequest.newBuilder(reservations.resolve("reservations/availability?room="
+                  + (random.nextInt(options.rooms) + 1) + "&from=" + from + "&to="
+                  + from.plusDays(30)))
+              .GET()
+              .build();
+        }
+        case PAGE -> HttpRequest.newBuilder(reservations.resolve("reservations?limit="
+                + PAGE_LIMIT + "&after=" + ids.pick(random)))
+            .GET()
+            .build();
+        default -> throw new IllegalArgumentException("Unexpected operation " + operation);
+      };
+      return String.valueOf(
+          client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    } catch (IOException e) {
+      return e.getClass().getSimpleName();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return e.getClass().getSimpleName();
+    }
+  }
+
+  private HttpRequest post(String path, String body) {
+    return HttpRequest.newBuilder(path.isEmpty() ? reservations : reservations.resolve(path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  /**
+   * Returns a reservation request for a stay of one to {@value #MAX_NIGHTS} nights in a random
+   * room.
+   */
+  private String body(String clientFullName, ThreadLocalRandom random) {
+    LocalDate checkIn = FIRST_NIGHT.plusDays(random.nextInt(BOOKING_DAYS));
+    StringJoiner dates = new StringJoiner("\",\"", "[\"", "\"]");
+    int nights = random.nextInt(MAX_NIGHTS) + 1;
+    for (int night = 0; night < nights; night++) {
+      dates.add(checkIn.plusDays(night).toString());
+    }
+    return "{\"clientFullName\":\"" + clientFullName + "\",\"roomNumber\":"
+        + (random.nextInt(options.rooms) + 1) + ",\"reservationDates\":" + dates + "}";
+  }
+
+  private void report(Results results) throws IOException {
+    double seconds = (results.lastAnswer - results.measureFrom) / 1e9;
+    long requests = results.all.responseTime.getTotalCount();
+    StringBuilder summary = new StringBuilder()
+        .append(options).append("\n\n")
+        .append(String.format(Locale.ROOT, "%d requests in %.1f s, %.1f requests/s (target %d)%n",
+            requests, seconds, seconds > 0 ? requests / seconds : 0.0, options.rate));
+
+    Map<String, OperationResults> byLabel = new TreeMap<>();
+    byLabel.put("all", results.all);
+    results.byOperation.forEach((operation, result) -> byLabel.put(operation.label(), result));
+    summary.append("\nResponse time from when each request was due, in ms\n");
+    table(summary, byLabel, true);
+    summary.append("\nService time from when each request was sent, in ms\n");
+    table(summary, byLabel, false);
+    summary.append("\nOutcomes\n");
+    byLabel.forEach((label, result) -> summary.append(String.format(Locale.ROOT, "%-13s %s%n",
+        label, result.outcomes)));
+
+    Files.writeString(options.output.resolve("summary.txt"), summary, StandardCharsets.UTF_8);
+    for (Map.Entry<String, OperationResults> entry : byLabel.entrySet()) {
+      writeDistribution(entry.getKey() + ".hgrm", entry.getValue().responseTime);
+      writeDistribution(entry.getKey() + "-service.hgrm", entry.getValue().serviceTime);
+    }
+    System.out.print(summary);
+    System.out.println("\nReport written to " + options.output.toAbsolutePath());
+  }
+
+  private static void table(StringBuilder summary, Map<String, OperationResults> byLabel,
+      boolean responseTime) {
+    summary.append(String.format(Locale.ROOT, "%-13s %9s", "operation", "count"));
+    for (double percentile : PERCENTILES) {
+      summary.append(String.format(Locale.ROOT, " %9s", "p" + (percentile % 1 == 0
+          ? String.valueOf((int) percentile) : String.valueOf(percentile))));
+    }
+    summary.append(String.format(Locale.ROOT, " %9s%n", "max"));
+    byLabel.forEach((label, result) -> {
+      Histogram histogram = responseTime ? result.responseTime : result.serviceTime;
+      summary.append(String.format(Locale.ROOT, "%-13s %9d", label, histogram.getTotalCount()));
+      for (double percentile : PERCENTILES) {
+        summary.append(String.format(Locale.ROOT, " %9.2f",
+            histogram.getValueAtPercentile(percentile) / 1_000.0));
+      }
+      summary.append(String.format(Locale.ROOT, " %9.2f%n", histogram.getMaxValue() / 1_000.0));
+    });
+  }
+
+  private void writeDistribution(String fileName, Histogram histogram) {
+    if (histogram.getTotalCount() == 0) {
+      return;
+    }
+    try (PrintStream out = new PrintStream(options.output.resolve(fileName).toFile(),
+        StandardCharsets.UTF_8)) {
+      histogram.outputPercentileDistribution(out, 1_000.0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Latencies, in microseconds, and outcomes of the measured requests of one or more clients.
+   */
+  private static final class Results {
+
+    private final long measureFrom;
+    private final OperationResults all = new OperationResults();
+    private final Map<Operation, OperationResults> byOperation = new EnumMap<>(Operation.class);
+    private long lastAnswer;
+
+    private Results(long measureFrom) {
+      this.measureFrom = measureFrom;
+      lastAnswer = measureFrom;
+    }
+
+    private void record(Operation operation, String outcome, long responseNanos,
+        long serviceNanos, long answered) {
+      long responseMicros = TimeUnit.NANOSECONDS.toMicros(responseNanos);
+      long serviceMicros = TimeUnit.NANOSECONDS.toMicros(serviceNanos);
+      all.record(outcome, responseMicros, serviceMicros);
+      byOperation.computeIfAbsent(operation, ignored -> new OperationResults())
+          .record(outcome, responseMicros, serviceMicros);
+      lastAnswer = Math.max(lastAnswer, answered);
+    }
+
+    private void add(Results other) {
+      all.add(other.all);
+      other.byOperation.forEach((operation, result) ->
+          byOperation.computeIfAbsent(operation, ignored -> new OperationResults()).add(result));
+      lastAnswer = Math.max(lastAnswer, other.lastAnswer);
+    }
+  }
+
+  private static final class OperationResults {
+
+    private final Histogram responseTime = new Histogram(3);
+    private final Histogram serviceTime = new Histogram(3);
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    private void record(String outcome, long responseMicros, long serviceMicros) {
+      responseTime.recordValue(responseMicros);
+      serviceTime.recordValue(serviceMicros);
+      outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    private void add(OperationResults other) {
+      responseTime.add(other.responseTime);
+      serviceTime.add(other.serviceTime);
+      other.outcomes.forEach((outcome, count) -> outcomes.merge(outcome, count, Long::sum));
+    }
+  }
+
+  /**
+   * Ids of the reservations created so far, for updates and reads to pick from.
+   */
+  private static final class IdPool {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private int[] ids = new int[1024];
+    private int size;
+
+    private void add(int id) {
+      lock.lock();
+      try {
+        if (size == ids.length) {
+          ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Returns a random known id, or 1 if none was created yet.
+     */
+    private int pick(ThreadLocalRandom random) {
+      lock.lock();
+      try {
+        return size == 0 ? 1 : ids[random.nextInt(size)];
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
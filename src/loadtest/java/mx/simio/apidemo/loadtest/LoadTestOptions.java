@@ -0,0 +1,96 @@
+package mx.simio.apidemo.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Settings of a load test, read from {@value #PREFIX}-prefixed system properties. {@code gradlew
+ * loadTest} passes its {@code -Ploadtest.*} project properties through, e.g.
+ * {@code -Ploadtest.rate=500 -Ploadtest.duration=2m}.
+ */
+final class LoadTestOptions {
+
+  static final String PREFIX = "loadtest.";
+
+  /**
+   * Classpath of the application, set by the {@code loadTest} task.
+   */
+  final String classpath;
+
+  /**
+   * Requests started per second, summed over all clients.
+   */
+  final int rate;
+  final int clients;
+  final Duration warmup;
+  final Duration duration;
+  final TrafficMix mix;
+
+  /**
+   * Reservations created before the test starts, for the reads and updates to find.
+   */
+  final int preload;
+  final int rooms;
+  final Path output;
+  final List<String> jvmArgs;
+  final List<String> applicationArgs;
+
+  private LoadTestOptions() {
+    classpath = System.getProperty(PREFIX + "classpath");
+    if (classpath == null) {
+      throw new IllegalStateException(
+          "Missing -D" + PREFIX + "classpath, run with gradlew loadTest");
+    }
+    rate = positive("rate", 200);
+    clients = positive("clients", 64);
+    warmup = duration("warmup", "10s");
+    duration = duration("duration", "30s");
+    mix = TrafficMix.parse(property("mix", "create:10,update:10,get:60,availability:15,page:5"));
+    preload = Integer.parseInt(property("preload", "10000"));
+    rooms = positive("rooms", 1000);
+    output = Path.of(property("output", "build/reports/loadtest"));
+    jvmArgs = words(property("jvm-args", "-Xms1g -Xmx1g"));
+    applicationArgs = words(property("app-args", "--file.backend=journal"));
+    if (duration.isZero() || duration.isNegative()) {
+      throw new IllegalArgumentException(PREFIX + "duration must be positive");
+    }
+    if (preload < 0) {
+      throw new IllegalArgumentException(PREFIX + "preload must not be negative");
+    }
+  }
+
+  static LoadTestOptions fromSystemProperties() {
+    return new LoadTestOptions();
+  }
+
+  @Override
+  public String toString() {
+    return "rate " + rate + "/s, " + clients + " clients, warmup " + warmup + ", duration "
+        + duration + ", preload " + preload + ", " + rooms + " rooms\nmix " + mix
+        + "\napplication " + String.join(" ", jvmArgs) + " " + String.join(" ", applicationArgs);
+  }
+
+  private static String property(String name, String defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    return value == null || value.isBlank() ? defaultValue : value.trim();
+  }
+
+  private static int positive(String name, int defaultValue) {
+    int value = Integer.parseInt(property(name, String.valueOf(defaultValue)));
+    if (value <= 0) {
+      throw new IllegalArgumentException(PREFIX + name + " must be positive");
+    }
+    return value;
+  }
+
+  private static Duration duration(String name, String defaultValue) {
+    return DurationStyle.detectAndParse(property(name, defaultValue));
+  }
+
+  private static List<String> words(String value) {
+    return Arrays.stream(value.split("\\s+")).filter(word -> !word.isEmpty()).toList();
+  }
+}
@@ -0,0 +1,89 @@
+package mx.simio.apidemo.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.random.RandomGenerator;
+
+/**
+ * Relative weights of the operations sent by a load test, written as
+ * {@code create:10,update:10,get:60}. Operations left out are not sent.
+ */
+final class TrafficMix {
+
+  /**
+   * The requests a load test sends to {@code /api/v1/reservations}.
+   */
+  enum Operation {
+    /** {@code POST /} with a new stay. */
+    CREATE,
+    /** {@code PUT /{id}} moving a known reservation to another stay. */
+    UPDATE,
+    /** {@code GET /{id}} of a known reservation. */
+    GET,
+    /** {@code GET /availability} of a room over a month. */
+    AVAILABILITY,
+    /** {@code GET ?limit=50&after=} from a random known reservation. */
+    PAGE;
+
+    String label() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final Map<Operation, Integer> weights;
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+
+  private TrafficMix(Map<Operation, Integer> weights) {
+    this.weights = weights;
+    operations = weights.keySet().toArray(Operation[]::new);
+    cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total = Math.addExact(total, weights.get(operations[i]));
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  static TrafficMix parse(String mix) {
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Expected operation:weight, got '" + entry + "'");
+      }
+      Operation operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+      int weight = Integer.parseInt(parts[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("The weight of " + parts[0] + " is negative");
+      }
+      if (weight > 0) {
+        weights.merge(operation, weight, Math::addExact);
+      }
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("The mix '" + mix + "' sends no requests");
+    }
+    return new TrafficMix(weights);
+  }
+
+  boolean includes(Operation operation) {
+    return weights.containsKey(operation);
+  }
+
+  Operation next(RandomGenerator random) {
+    int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = Arrays.binarySearch(cumulativeWeights, pick);
+    return operations[index >= 0 ? index + 1 : -index - 1];
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(",");
+    weights.forEach((operation, weight) -> joiner.add(operation.label() + ":" + weight));
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,43 @@
+package mx.simio.apidemo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs every request of the embedded Tomcat on its own virtual thread when
+ * {@code spring.threads.virtual.enabled} is {@code true}, the property later Spring Boot versions
+ * use for the same purpose. A request blocked on persistence then parks its virtual thread instead
+ * of holding one of Tomcat's platform threads, so slow disks no longer exhaust the pool.
+ *
+ * <p>Reservation locking is built on {@link java.util.concurrent.locks.ReentrantLock} rather than
+ * {@code synchronized}, so a request waiting for a room lock or blocked while holding one does not
+ * pin its carrier thread. Needs Java 21; on older JVMs a warning is logged and the platform pool is
+ * kept. Has no effect when the application is deployed as a WAR to an external server.
+ *
+ * <p>Only request handling moves to virtual threads. Background persistence work stays on platform
+ * threads, because none of it would gain anything. The group-commit writer and the checkpointer
+ * are each a single long-lived thread, and a virtual thread spending its life writing and forcing
+ * files would only hold its carrier. The asynchronous create and update pool is bounded on purpose:
+ * its {@code reservation.async.threads} threads limit how many changes are stored at once, and its
+ * queue is what refuses changes with a 503 under overload. Its changes block on the disk through
+ * {@code FileChannel}, which occupies a carrier thread anyway.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+    return protocolHandler -> VirtualThreads.newThreadPerTaskExecutor("http-virtual-")
+        .ifPresentOrElse(executor -> {
+          protocolHandler.setExecutor(executor);
+          log.info("Handling requests on virtual threads");
+        }, () -> log.warn("Virtual threads need Java 21 or later, handling requests on the "
+            + "platform thread pool"));
+  }
+}
@@ -0,0 +1,39 @@
+package mx.simio.apidemo;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run every task on a new virtual thread, when the running JVM has them.
+ *
+ * <p>The project compiles for Java 17, which has no virtual threads, so the Java 21 API is reached
+ * through reflection. On older JVMs, or when the API is a disabled preview, nothing is created.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * Creates an executor that starts a virtual thread named {@code prefix} followed by a counter
+   * for each task.
+   *
+   * @return the executor, or an empty optional if this JVM cannot create virtual threads
+   */
+  public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix) {
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderType.getMethod("name", String.class, long.class)
+          .invoke(builder, prefix, 0L);
+      ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+      return Optional.of((ExecutorService) Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, factory));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+}
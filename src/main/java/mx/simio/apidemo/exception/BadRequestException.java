@@ -0,0 +1,8 @@
+package mx.simio.apidemo.exception;
+
+public class BadRequestException extends RuntimeException {
+
+  public BadRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package mx.simio.apidemo.exception;
+
+public class ConflictException extends RuntimeException {
+
+  public ConflictException(String message) {
+    super(message);
+  }
+}
@@ -1,7 +1,11 @@
 package mx.simio.apidemo.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -10,7 +14,20 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 @ControllerAdvice
-public class GlobalExceptionHandler {
+public class GlobalExceptionHandler implements MeterBinder {
+
+  private volatile Counter serviceExceptions;
+  private volatile Counter notFoundExceptions;
+
+  /**
+   * Registers a counter of the handled exceptions of each type that usually needs attention.
+   * Until this is called, nothing is counted.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    serviceExceptions = exceptionCounter(ServiceException.class, registry);
+    notFoundExceptions = exceptionCounter(NotFoundException.class, registry);
+  }
 
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Map<String, String>> handleValidationExceptions(
@@ -24,13 +41,50 @@ public class GlobalExceptionHandler {
 
   @ExceptionHandler(ServiceException.class)
   public ResponseEntity<ErrorResponse> handleServiceException(ServiceException ex) {
+    increment(serviceExceptions);
     ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
     return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
   }
 
   @ExceptionHandler(NotFoundException.class)
   public ResponseEntity<ErrorResponse> handleNotFoundException(NotFoundException ex) {
+    increment(notFoundExceptions);
     ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
     return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
   }
+
+  @ExceptionHandler(ConflictException.class)
+  public ResponseEntity<ErrorResponse> handleConflictException(ConflictException ex) {
+    ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+    return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleServiceUnavailableException(
+      ServiceUnavailableException ex) {
+    ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(errorResponse);
+  }
+
+  @ExceptionHandler(BadRequestException.class)
+  public ResponseEntity<ErrorResponse> handleBadRequestException(BadRequestException ex) {
+    ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+    return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+  }
+
+  private static Counter exceptionCounter(Class<? extends RuntimeException> type,
+      MeterRegistry registry) {
+    return Counter.builder("api.exceptions")
+        .description("Exceptions turned into error responses")
+        .tag("exception", type.getSimpleName())
+        .register(registry);
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
 }
@@ -0,0 +1,8 @@
+package mx.simio.apidemo.exception;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+  public ServiceUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,115 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Id allocator that survives restarts by reserving ids in blocks. Only the end of the reserved
+ * block is kept on disk, in {@code <file.path>.ids}, and it is made durable before any id of the
+ * block is handed out. Handing out an id inside the block is a single atomic increment; only the
+ * thread that crosses the end of the block takes a lock and writes the file.
+ *
+ * <p>After a restart, allocation resumes at the end of the last reserved block, so the ids that
+ * were reserved but not used before a crash are skipped and never reused.
+ */
+@Slf4j
+@Component
+public class BlockIdAllocator implements IdAllocator {
+
+  private final Path path;
+  private final int blockSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicInteger next;
+
+  private volatile int reservedUntil;
+
+  public BlockIdAllocator(@Value("${file.path:reservations.txt}") String filePath,
+      @Value("${file.ids.block-size:1000}") int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("The id block size must be positive");
+    }
+    this.path = Path.of(filePath + ".ids");
+    this.blockSize = blockSize;
+    this.reservedUntil = readReservedUntil();
+    this.next = new AtomicInteger(reservedUntil);
+  }
+
+  @Override
+  public int nextId() {
+    int id = next.getAndIncrement();
+    if (id < reservedUntil) {
+      return id;
+    }
+
+    lock.lock();
+    try {
+      if (id >= reservedUntil) {
+        reserveUntil(Math.addExact(id, blockSize));
+      }
+      return id;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void advancePast(int id) {
+    if (next.getAndAccumulate(id + 1, Math::max) <= id) {
+      log.info("Advanced the id sequence past {}", id);
+    }
+  }
+
+  private int readReservedUntil() {
+    if (!Files.exists(path)) {
+      return 1;
+    }
+    try {
+      byte[] bytes = Files.readAllBytes(path);
+      if (bytes.length != Integer.BYTES) {
+        throw new ServiceException("Corrupt id sequence file " + path);
+      }
+      return ByteBuffer.wrap(bytes).getInt();
+    } catch (IOException e) {
+      log.error("Error reading id sequence", e);
+      throw new ServiceException("Error reading id sequence");
+    }
+  }
+
+  /**
+   * Durably records that ids below the given one may have been handed out.
+   */
+  private void reserveUntil(int limit) {
+    Path temporary = Path.of(path + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(0, limit);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      log.error("Error reserving ids", e);
+      throw new ServiceException("Error reserving ids");
+    }
+
+    try {
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.error("Error reserving ids", e);
+      throw new ServiceException("Error reserving ids");
+    }
+    reservedUntil = limit;
+  }
+}
@@ -1,6 +1,8 @@
 package mx.simio.apidemo.file;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.function.Consumer;
 import mx.simio.apidemo.reservation.Reservation;
 
 public interface FileOperations {
@@ -8,4 +10,58 @@ public interface FileOperations {
   void writeToFile(Set<Reservation> reservations);
 
   Set<Reservation> readFromFile();
+
+  /**
+   * Reads the persisted reservations and hands them to the consumer in chunks, each one as soon as
+   * it has been read. The consumer may be called from several threads at once. Backends that
+   * cannot split their data hand it over as a single chunk.
+   *
+   * @param consumer receives every persisted reservation exactly once
+   */
+  default void readChunks(Consumer<Collection<Reservation>> consumer) {
+    consumer.accept(readFromFile());
+  }
+
+  /**
+   * Persists a single created or updated reservation. Backends that only keep a full snapshot
+   * ignore it and rely on {@link #writeToFile(Set)} at shutdown.
+   *
+   * @param reservation the reservation as it should be restored on the next start
+   */
+  default void appendToFile(Reservation reservation) {
+  }
+
+  /**
+   * Persists several created or updated reservations as one write. Backends that can make a write
+   * durable should do so once for the whole group rather than once per reservation.
+   *
+   * @param reservations the reservations as they should be restored on the next start
+   */
+  default void appendAllToFile(Collection<Reservation> reservations) {
+    reservations.forEach(this::appendToFile);
+  }
+
+  /**
+   * Tells whether {@link #appendAllToFile(Collection)} persists reservations on its own, so that a
+   * caller may write only what changed instead of the whole set.
+   */
+  default boolean supportsAppend() {
+    return false;
+  }
+
+  /**
+   * Total number of bytes written by this backend since it was created, or 0 if it does not keep
+   * track.
+   */
+  default long getBytesWritten() {
+    return 0;
+  }
+
+  /**
+   * Total number of bytes read by {@link #readFromFile()} and {@link #readChunks(Consumer)} since
+   * this backend was created, or 0 if it does not keep track.
+   */
+  default long getBytesRead() {
+    return 0;
+  }
 }
@@ -0,0 +1,34 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps whichever {@link FileOperations} backend is active in an
+ * {@link InstrumentedFileOperations}, so that every backend is measured the same way without
+ * knowing about metrics. Backends are left as they are when there is no meter registry.
+ *
+ * <p>Only the injected reference is wrapped; lifecycle callbacks such as closing the backend still
+ * run on the backend itself.
+ */
+@Component
+public class FileOperationsMetricsPostProcessor implements BeanPostProcessor {
+
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+
+  public FileOperationsMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!(bean instanceof FileOperations fileOperations)
+        || bean instanceof InstrumentedFileOperations) {
+      return bean;
+    }
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    return registry == null ? bean : new InstrumentedFileOperations(fileOperations, registry);
+  }
+}
@@ -1,24 +1,51 @@
 package mx.simio.apidemo.file;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import mx.simio.apidemo.exception.ServiceException;
 import mx.simio.apidemo.reservation.Reservation;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * Snapshot backend that writes the whole reservation set in the {@link ReservationCodec} format.
+ * Files written with Java serialization by earlier versions are still read, and are replaced by
+ * the binary format on the next write. {@link #readChunks(Consumer)} maps the file and decodes its
+ * chunks in parallel.
+ *
+ * <p>A write goes to a temporary file that is forced to disk and then moved over the previous one,
+ * so a crash or a full disk while writing leaves the previous file whole. A file that exists but
+ * cannot be decoded fails the read instead of being taken for an empty one, which the next write
+ * would otherwise replace.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "file.backend", havingValue = "snapshot", matchIfMissing = true)
 public class FileUtilImpl implements FileOperations {
 
   private final String filePath;
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
 
   public FileUtilImpl(@Value("${file.path:reservations.txt}") String filePath) {
     this.filePath = filePath;
@@ -26,16 +53,36 @@ public class FileUtilImpl implements FileOperations {
 
   @Override
   public void writeToFile(Set<Reservation> reservations) {
-    try (FileOutputStream fos = new FileOutputStream(filePath);
-        ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-      oos.writeObject(reservations);
-      oos.flush();
+    Path temporary = Path.of(filePath + ".tmp");
+    try {
+      try (FileOutputStream fos = new FileOutputStream(temporary.toFile())) {
+        ReservationCodec.write(reservations, fos);
+        fos.getChannel().force(true);
+        bytesWritten.addAndGet(fos.getChannel().position());
+      }
+      Files.move(temporary, Path.of(filePath), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
     } catch (IOException e) {
       log.error("Error writing to file", e);
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
       throw new ServiceException("Error writing to file");
     }
   }
 
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
   @Override
   public Set<Reservation> readFromFile() {
     File file = new File(filePath);
@@ -45,7 +92,54 @@ public class FileUtilImpl implements FileOperations {
     }
 
     try (FileInputStream fis = new FileInputStream(file);
-        ObjectInputStream ois = new ObjectInputStream(fis)) {
+        BufferedInputStream bis = new BufferedInputStream(fis)) {
+      bis.mark(ReservationCodec.MAGIC.length);
+      byte[] header = bis.readNBytes(ReservationCodec.MAGIC.length);
+      bis.reset();
+      bytesRead.addAndGet(fis.getChannel().size());
+
+      if (ReservationCodec.hasMagic(header)) {
+        return ReservationCodec.read(bis);
+      }
+      Set<Reservation> reservations = readLegacy(bis);
+      if (!reservations.isEmpty()) {
+        log.info("Read {} reservations written with Java serialization, they will be rewritten in "
+            + "the binary format on the next write", reservations.size());
+      }
+      return reservations;
+    } catch (IOException e) {
+      log.error("Error reading from file: IO exception", e);
+      throw new ServiceException("Error reading from file");
+    }
+  }
+
+  @Override
+  public void readChunks(Consumer<Collection<Reservation>> consumer) {
+    try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size >= ReservationCodec.MAGIC.length && size <= Integer.MAX_VALUE) {
+        MappedByteBuffer snapshot = channel.map(MapMode.READ_ONLY, 0, size);
+        byte[] header = new byte[ReservationCodec.MAGIC.length];
+        snapshot.get(0, header);
+        if (ReservationCodec.hasMagic(header)) {
+          bytesRead.addAndGet(size);
+          ReservationCodec.readChunks(snapshot, consumer::accept);
+          return;
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return;
+    } catch (IOException e) {
+      log.error("Error reading from file: IO exception", e);
+      throw new ServiceException("Error reading from file");
+    }
+
+    consumer.accept(readFromFile());
+  }
+
+  private Set<Reservation> readLegacy(InputStream in) throws IOException {
+    try {
+      ObjectInputStream ois = new ObjectInputStream(in);
       Object obj = ois.readObject();
 
       if (obj instanceof Set) {
@@ -58,14 +152,12 @@ public class FileUtilImpl implements FileOperations {
       } else {
         log.error("Error reading from file: Data was not a Set");
       }
-    } catch (IOException e) {
-      log.error("Error reading from file: IO exception", e);
     } catch (ClassNotFoundException e) {
       log.error("Error reading from file: Class not found", e);
     } catch (ClassCastException e) {
       log.error("Error reading from file: Class cast exception", e);
     }
 
-    return new HashSet<>();
+    throw new ServiceException("Error reading from file");
   }
 }
@@ -0,0 +1,236 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+
+/**
+ * Group commit in front of a backend that appends: callers of {@link #appendToFile} and
+ * {@link #appendAllToFile} only queue their reservations and wait, while a single writer thread
+ * hands everything queued within {@code maxLatency} of the first waiting caller, up to
+ * {@code maxBatchSize} reservations, to the backend as one {@link #appendAllToFile} call. The
+ * backend then makes the whole batch durable with one write and one fsync, and every caller of
+ * the batch returns once it has, or fails with the backend's exception if it could not.
+ *
+ * <p>Under concurrent load the cost of an fsync is shared by all requests of a batch instead of
+ * being paid by each of them. Callers still only return after their change is on disk, so the
+ * durability of a single request is unchanged. Full writes and reads are passed through.
+ */
+@Slf4j
+public class GroupCommitFileOperations implements FileOperations {
+
+  private static final Pending STOP = new Pending(List.of());
+
+  private final FileOperations delegate;
+  private final int maxBatchSize;
+  private final long maxLatencyNanos;
+  private final DistributionSummary batchSize;
+  private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Thread writer;
+
+  private boolean closed;
+
+  /**
+   * @param registry where the batch size distribution is registered, or {@code null} for none
+   */
+  public GroupCommitFileOperations(FileOperations delegate, int maxBatchSize, Duration maxLatency,
+      MeterRegistry registry) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("A batch must hold at least one reservation");
+    }
+    if (maxLatency.isNegative()) {
+      throw new IllegalArgumentException("The batch latency must not be negative");
+    }
+    this.delegate = delegate;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatencyNanos = maxLatency.toNanos();
+    this.batchSize = registry == null ? null
+        : DistributionSummary.builder("reservation.persistence.batch.size")
+            .description("Reservations made durable together by one group commit")
+            .baseUnit("reservations")
+            .publishPercentileHistogram()
+            .register(registry);
+    this.writer = new Thread(this::writeBatches, "group-commit-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  @Override
+  public void writeToFile(Set<Reservation> reservations) {
+    delegate.writeToFile(reservations);
+  }
+
+  @Override
+  public Set<Reservation> readFromFile() {
+    return delegate.readFromFile();
+  }
+
+  @Override
+  public void readChunks(Consumer<Collection<Reservation>> consumer) {
+    delegate.readChunks(consumer);
+  }
+
+  @Override
+  public void appendToFile(Reservation reservation) {
+    commit(List.of(reservation));
+  }
+
+  @Override
+  public void appendAllToFile(Collection<Reservation> reservations) {
+    if (!reservations.isEmpty()) {
+      commit(List.copyOf(reservations));
+    }
+  }
+
+  @Override
+  public boolean supportsAppend() {
+    return delegate.supportsAppend();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return delegate.getBytesWritten();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return delegate.getBytesRead();
+  }
+
+  /**
+   * Commits what has been queued so far and stops the writer thread. Later appends go straight to
+   * the backend.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.add(STOP);
+    } finally {
+      lock.unlock();
+    }
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void commit(List<Reservation> reservations) {
+    Pending pending = new Pending(reservations);
+    boolean queued;
+    lock.lock();
+    try {
+      queued = !closed && queue.add(pending);
+    } finally {
+      lock.unlock();
+    }
+    if (queued) {
+      await(pending);
+    } else {
+      delegate.appendAllToFile(reservations);
+    }
+  }
+
+  private static void await(Pending pending) {
+    try {
+      pending.done.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while waiting for the group commit", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new ServiceException("Error appending to file", e.getCause());
+    }
+  }
+
+  /**
+   * Runs on the writer thread until {@link #close()}: waits for a first caller, gathers the
+   * callers arriving within the latency window and commits them as one batch.
+   */
+  private void writeBatches() {
+    List<Pending> batch = new ArrayList<>();
+    boolean stopping = false;
+    while (!stopping) {
+      try {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + maxLatencyNanos;
+        int reservations = batch.get(0).reservations.size();
+        while (reservations < maxBatchSize && batch.get(batch.size() - 1) != STOP) {
+          Pending next = queue.poll();
+          if (next == null) {
+            long remaining = deadline - System.nanoTime();
+            next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+              break;
+            }
+          }
+          batch.add(next);
+          reservations += next.reservations.size();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        stopping = true;
+      }
+      if (!batch.isEmpty() && batch.get(batch.size() - 1) == STOP) {
+        batch.remove(batch.size() - 1);
+        stopping = true;
+      }
+      write(batch);
+      batch.clear();
+    }
+  }
+
+  private void write(List<Pending> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<Reservation> reservations = new ArrayList<>();
+    for (Pending pending : batch) {
+      reservations.addAll(pending.reservations);
+    }
+    try {
+      delegate.appendAllToFile(reservations);
+      batch.forEach(pending -> pending.done.complete(null));
+    } catch (RuntimeException e) {
+      log.error("Error committing a batch of {} reservations", reservations.size(), e);
+      batch.forEach(pending -> pending.done.completeExceptionally(e));
+    }
+    if (batchSize != null) {
+      batchSize.record(reservations.size());
+    }
+  }
+
+  /**
+   * Reservations of one caller waiting to be committed.
+   */
+  private static final class Pending {
+
+    private final List<Reservation> reservations;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private Pending(List<Reservation> reservations) {
+      this.reservations = reservations;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts a {@link GroupCommitFileOperations} in front of the active {@link FileOperations} backend
+ * when {@code file.group-commit.enabled} is {@code true} and the backend appends. It is ordered
+ * so that it runs before {@link FileOperationsMetricsPostProcessor}, whose append timer then
+ * includes the time spent waiting for a batch.
+ *
+ * <p>The writer threads are stopped when the context closes, after the beans using the backend.
+ */
+@Component
+@ConditionalOnProperty(name = "file.group-commit.enabled", havingValue = "true")
+public class GroupCommitPostProcessor implements BeanPostProcessor, Ordered, DisposableBean {
+
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+  private final int maxBatchSize;
+  private final Duration maxLatency;
+  private final List<GroupCommitFileOperations> created = new CopyOnWriteArrayList<>();
+
+  public GroupCommitPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${file.group-commit.max-batch-size:1000}") int maxBatchSize,
+      @Value("${file.group-commit.max-latency:1ms}") Duration maxLatency) {
+    this.meterRegistry = meterRegistry;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatency = maxLatency;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!(bean instanceof FileOperations fileOperations)
+        || bean instanceof GroupCommitFileOperations || !fileOperations.supportsAppend()) {
+      return bean;
+    }
+    GroupCommitFileOperations groupCommit = new GroupCommitFileOperations(fileOperations,
+        maxBatchSize, maxLatency, meterRegistry.getIfAvailable());
+    created.add(groupCommit);
+    return groupCommit;
+  }
+
+  @Override
+  public int getOrder() {
+    return 0;
+  }
+
+  @Override
+  public void destroy() {
+    created.forEach(GroupCommitFileOperations::close);
+  }
+}
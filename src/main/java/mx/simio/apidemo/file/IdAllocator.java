@@ -0,0 +1,38 @@
+package mx.simio.apidemo.file;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out reservation ids. Ids are unique and increasing, but not necessarily contiguous.
+ */
+public interface IdAllocator {
+
+  int nextId();
+
+  /**
+   * Makes sure that no id up to and including the given one is handed out from now on. Called
+   * with the highest id found on disk, so that data written before the allocator kept its own
+   * state cannot collide with new ids.
+   *
+   * @param id the highest id already in use
+   */
+  void advancePast(int id);
+
+  /**
+   * An allocator that starts at 1 on every start and keeps nothing on disk.
+   */
+  static IdAllocator inMemory() {
+    AtomicInteger last = new AtomicInteger();
+    return new IdAllocator() {
+      @Override
+      public int nextId() {
+        return last.incrementAndGet();
+      }
+
+      @Override
+      public void advancePast(int id) {
+        last.accumulateAndGet(id, Math::max);
+      }
+    };
+  }
+}
@@ -0,0 +1,139 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import mx.simio.apidemo.reservation.Reservation;
+
+/**
+ * Records how long every call to a {@link FileOperations} backend takes and how many bytes full
+ * writes and reads move, and otherwise passes the calls through unchanged.
+ *
+ * <p>Meters are registered once, when the decorator is created, so a call costs two
+ * {@link System#nanoTime()} reads and a histogram update. Timers are tagged with the operation
+ * ({@code write}, {@code read} or {@code append}) and count failed calls too.
+ */
+public class InstrumentedFileOperations implements FileOperations {
+
+  private final FileOperations delegate;
+  private final Timer writeTimer;
+  private final Timer readTimer;
+  private final Timer appendTimer;
+  private final DistributionSummary writeSize;
+  private final DistributionSummary readSize;
+
+  public InstrumentedFileOperations(FileOperations delegate, MeterRegistry registry) {
+    this.delegate = delegate;
+    this.writeTimer = timer("write", registry);
+    this.readTimer = timer("read", registry);
+    this.appendTimer = timer("append", registry);
+    this.writeSize = size("write", registry);
+    this.readSize = size("read", registry);
+    FunctionCounter.builder("reservation.persistence.bytes", delegate,
+            FileOperations::getBytesWritten)
+        .description("Bytes written by the persistence backend")
+        .baseUnit("bytes")
+        .tag("direction", "written")
+        .register(registry);
+    FunctionCounter.builder("reservation.persistence.bytes", delegate,
+            FileOperations::getBytesRead)
+        .description("Bytes read by the persistence backend")
+        .baseUnit("bytes")
+        .tag("direction", "read")
+        .register(registry);
+  }
+
+  @Override
+  public void writeToFile(Set<Reservation> reservations) {
+    long bytesBefore = delegate.getBytesWritten();
+    long start = System.nanoTime();
+    try {
+      delegate.writeToFile(reservations);
+    } finally {
+      writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    writeSize.record(delegate.getBytesWritten() - bytesBefore);
+  }
+
+  @Override
+  public Set<Reservation> readFromFile() {
+    long bytesBefore = delegate.getBytesRead();
+    long start = System.nanoTime();
+    Set<Reservation> reservations;
+    try {
+      reservations = delegate.readFromFile();
+    } finally {
+      readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    readSize.record(delegate.getBytesRead() - bytesBefore);
+    return reservations;
+  }
+
+  @Override
+  public void readChunks(Consumer<Collection<Reservation>> consumer) {
+    long bytesBefore = delegate.getBytesRead();
+    long start = System.nanoTime();
+    try {
+      delegate.readChunks(consumer);
+    } finally {
+      readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    readSize.record(delegate.getBytesRead() - bytesBefore);
+  }
+
+  @Override
+  public void appendToFile(Reservation reservation) {
+    long start = System.nanoTime();
+    try {
+      delegate.appendToFile(reservation);
+    } finally {
+      appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void appendAllToFile(Collection<Reservation> reservations) {
+    long start = System.nanoTime();
+    try {
+      delegate.appendAllToFile(reservations);
+    } finally {
+      appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public boolean supportsAppend() {
+    return delegate.supportsAppend();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return delegate.getBytesWritten();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return delegate.getBytesRead();
+  }
+
+  private static Timer timer(String operation, MeterRegistry registry) {
+    return Timer.builder("reservation.persistence.duration")
+        .description("Time spent in the persistence backend")
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  private static DistributionSummary size(String operation, MeterRegistry registry) {
+    return DistributionSummary.builder("reservation.persistence.size")
+        .description("Bytes moved by a full write or read of the reservations")
+        .baseUnit("bytes")
+        .tag("operation", operation)
+        .register(registry);
+  }
+}
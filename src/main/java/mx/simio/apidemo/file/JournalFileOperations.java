@@ -0,0 +1,439 @@
+package mx.simio.apidemo.file;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.DateRuns;
+import mx.simio.apidemo.reservation.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-ahead journal backend. Every created or updated reservation is appended to
+ * {@code <file.path>.journal} as a single checksummed record, so the cost of a mutation is
+ * proportional to the record and not to the dataset. Once the journal holds
+ * {@code file.journal.compaction-threshold} records it is rotated and merged into the snapshot at
+ * {@code file.path} on a background thread.
+ *
+ * <p>On startup the snapshot is read first, then the rotated journal (if a compaction did not
+ * finish) and finally the active journal. Records are upserts by id, so replaying a record twice
+ * is harmless. A torn record at the tail of a journal is discarded.
+ *
+ * <p>Records keep the dates as runs of consecutive days, each its first epoch day and its length.
+ * Records written by earlier versions, with one epoch day per date, are still read.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "file.backend", havingValue = "journal")
+public class JournalFileOperations implements FileOperations {
+
+  private static final int HAS_NAME = 1;
+  private static final int HAS_ROOM = 1 << 1;
+  private static final int HAS_DATES = 1 << 2;
+  private static final int HAS_DATE_RUNS = 1 << 3;
+  static final int MAX_RECORD_LENGTH = 1 << 20;
+
+  private final Path snapshotPath;
+  private final Path journalPath;
+  private final Path rotatedPath;
+  private final int compactionThreshold;
+  private final boolean fsync;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "journal-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private FileChannel journal;
+  private boolean torn;
+  private int recordsSinceCompaction;
+  private Future<?> compaction;
+
+  public JournalFileOperations(@Value("${file.path:reservations.txt}") String filePath,
+      @Value("${file.journal.compaction-threshold:10000}") int compactionThreshold,
+      @Value("${file.journal.fsync:true}") boolean fsync) {
+    this.snapshotPath = Path.of(filePath);
+    this.journalPath = Path.of(filePath + ".journal");
+    this.rotatedPath = Path.of(filePath + ".journal.1");
+    this.compactionThreshold = compactionThreshold;
+    this.fsync = fsync;
+  }
+
+  @Override
+  public void writeToFile(Set<Reservation> reservations) {
+    lock.lock();
+    try {
+      awaitCompaction();
+      writeSnapshot(reservations);
+      closeJournal();
+      Files.deleteIfExists(journalPath);
+      Files.deleteIfExists(rotatedPath);
+      recordsSinceCompaction = 0;
+    } catch (IOException e) {
+      log.error("Error writing to file", e);
+      throw new ServiceException("Error writing to file");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Set<Reservation> readFromFile() {
+    lock.lock();
+    try {
+      bytesRead.addAndGet(sizeOf(snapshotPath) + sizeOf(rotatedPath) + sizeOf(journalPath));
+      Map<Integer, Reservation> reservations = readSnapshot();
+      int rotated = replay(rotatedPath, reservations);
+      recordsSinceCompaction = replay(journalPath, reservations);
+      log.info("Replayed {} journal records", rotated + recordsSinceCompaction);
+      return new HashSet<>(reservations.values());
+    } catch (IOException e) {
+      log.error("Error reading from journal", e);
+      throw new ServiceException("Error reading from journal");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void appendToFile(Reservation reservation) {
+    append(new ByteBuffer[]{encode(reservation)});
+  }
+
+  @Override
+  public void appendAllToFile(Collection<Reservation> reservations) {
+    if (reservations.isEmpty()) {
+      return;
+    }
+    append(reservations.stream()
+        .map(JournalFileOperations::encode)
+        .toArray(ByteBuffer[]::new));
+  }
+
+  @Override
+  public boolean supportsAppend() {
+    return true;
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * Writes the given records with one gathering write and, if enabled, a single fsync. If the
+   * write or the fsync fails, the journal is truncated back to where the records started, so that
+   * later records are not appended after a torn one and lost on replay.
+   */
+  private void append(ByteBuffer[] records) {
+    long remaining = 0;
+    for (ByteBuffer record : records) {
+      remaining += record.remaining();
+    }
+
+    lock.lock();
+    long start = -1;
+    try {
+      FileChannel channel = journalChannel();
+      start = channel.size();
+      bytesWritten.addAndGet(remaining);
+      write(channel, records, remaining);
+      start = -1;
+      recordsSinceCompaction += records.length;
+      if (recordsSinceCompaction >= compactionThreshold) {
+        rotateJournal();
+      }
+    } catch (IOException e) {
+      log.error("Error appending to journal", e);
+      if (start >= 0) {
+        discardFrom(start);
+      }
+      throw new ServiceException("Error appending to journal");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the given number of bytes of the records to the journal and forces them if fsync is
+   * enabled.
+   */
+  void write(FileChannel channel, ByteBuffer[] records, long length) throws IOException {
+    while (length > 0) {
+      length -= channel.write(records);
+    }
+    if (fsync) {
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Cuts the journal back to the given size after a failed append. If that fails too, the journal
+   * is closed and its torn tail is discarded when it is opened again.
+   */
+  private void discardFrom(long size) {
+    try {
+      journal.truncate(size);
+      if (fsync) {
+        journal.force(false);
+      }
+    } catch (IOException e) {
+      log.error("Error truncating journal after a failed append", e);
+      try {
+        closeJournal();
+      } catch (IOException closeError) {
+        log.warn("Error closing journal", closeError);
+        journal = null;
+      }
+      torn = true;
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    lock.lock();
+    try {
+      closeJournal();
+    } catch (IOException e) {
+      log.error("Error closing journal", e);
+    } finally {
+      compactor.shutdown();
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Blocks until the background compaction in progress, if any, has finished.
+   */
+  void awaitCompaction() {
+    if (compaction == null) {
+      return;
+    }
+    try {
+      compaction.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while waiting for journal compaction", e);
+    } catch (ExecutionException e) {
+      log.error("Error compacting journal", e.getCause());
+    }
+  }
+
+  private void rotateJournal() throws IOException {
+    if (compaction != null && !compaction.isDone()) {
+      return;
+    }
+    if (!Files.exists(rotatedPath)) {
+      closeJournal();
+      Files.move(journalPath, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+      recordsSinceCompaction = 0;
+    }
+    compaction = compactor.submit(this::compact);
+  }
+
+  private void compact() {
+    try {
+      Map<Integer, Reservation> reservations = readSnapshot();
+      int records = replay(rotatedPath, reservations);
+      writeSnapshot(reservations.values());
+      Files.deleteIfExists(rotatedPath);
+      log.info("Compacted {} journal records into a snapshot of {} reservations", records,
+          reservations.size());
+    } catch (Exception e) {
+      log.error("Error compacting journal", e);
+    }
+  }
+
+  private Map<Integer, Reservation> readSnapshot() {
+    Map<Integer, Reservation> reservations = new HashMap<>();
+    new FileUtilImpl(snapshotPath.toString()).readFromFile()
+        .forEach(reservation -> reservations.put(reservation.getId(), reservation));
+    return reservations;
+  }
+
+  private void writeSnapshot(Collection<Reservation> reservations) {
+    FileUtilImpl snapshot = new FileUtilImpl(snapshotPath.toString());
+    snapshot.writeToFile(new HashSet<>(reservations));
+    bytesWritten.addAndGet(snapshot.getBytesWritten());
+  }
+
+  private static long sizeOf(Path path) throws IOException {
+    return Files.exists(path) ? Files.size(path) : 0;
+  }
+
+  private FileChannel journalChannel() throws IOException {
+    if (torn) {
+      replay(journalPath, new HashMap<>());
+      torn = false;
+    }
+    if (journal == null) {
+      journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    return journal;
+  }
+
+  private void closeJournal() throws IOException {
+    if (journal != null) {
+      journal.close();
+      journal = null;
+    }
+  }
+
+  /**
+   * Applies every intact record of the given journal file to the reservations map and truncates
+   * a torn record left at its tail by a crash.
+   *
+   * @return the number of records replayed
+   */
+  private static int replay(Path path, Map<Integer, Reservation> reservations)
+      throws IOException {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+
+    int records = 0;
+    long validLength = 0;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      while (true) {
+        byte[] payload;
+        int checksum;
+        try {
+          int length = in.readInt();
+          if (length < 0 || length > MAX_RECORD_LENGTH) {
+            break;
+          }
+          payload = new byte[length];
+          in.readFully(payload);
+          checksum = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        if (checksum != checksum(payload)) {
+          break;
+        }
+        Reservation reservation = decode(payload);
+        reservations.put(reservation.getId(), reservation);
+        validLength += Integer.BYTES + payload.length + Integer.BYTES;
+        records++;
+      }
+    }
+
+    if (validLength < Files.size(path)) {
+      log.warn("Discarding torn record at the end of {}", path);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+      }
+    }
+    return records;
+  }
+
+  private static ByteBuffer encode(Reservation reservation) {
+    byte[] payload = encodePayload(reservation);
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES);
+    record.putInt(payload.length).put(payload).putInt(checksum(payload)).flip();
+    return record;
+  }
+
+  /**
+   * Encodes a reservation as the payload of a record, without its length and checksum.
+   */
+  static byte[] encodePayload(Reservation reservation) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      DateRuns dates = DateRuns.of(reservation.getReservationDates());
+      int flags = (reservation.getClientFullName() != null ? HAS_NAME : 0)
+          | (reservation.getRoomNumber() != null ? HAS_ROOM : 0)
+          | (dates != null ? HAS_DATE_RUNS : 0);
+
+      out.writeInt(reservation.getId());
+      out.writeByte(flags);
+      if (reservation.getClientFullName() != null) {
+        out.writeUTF(reservation.getClientFullName());
+      }
+      if (reservation.getRoomNumber() != null) {
+        out.writeInt(reservation.getRoomNumber());
+      }
+      if (dates != null) {
+        out.writeInt(dates.runCount());
+        for (int run = 0; run < dates.runCount(); run++) {
+          out.writeInt((int) dates.runStart(run));
+          out.writeInt(dates.runLength(run));
+        }
+      }
+    } catch (IOException e) {
+      throw new ServiceException("Error encoding journal record", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static Reservation decode(byte[] payload) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      int id = in.readInt();
+      int flags = in.readUnsignedByte();
+      String clientFullName = (flags & HAS_NAME) != 0 ? in.readUTF() : null;
+      Integer roomNumber = (flags & HAS_ROOM) != 0 ? in.readInt() : null;
+      List<LocalDate> dates = null;
+      if ((flags & HAS_DATE_RUNS) != 0) {
+        int runs = in.readInt();
+        DateRuns.Builder builder = new DateRuns.Builder();
+        for (int run = 0; run < runs; run++) {
+          builder.add(in.readInt(), in.readInt());
+        }
+        dates = builder.build();
+      } else if ((flags & HAS_DATES) != 0) {
+        int size = in.readInt();
+        dates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          dates.add(LocalDate.ofEpochDay(in.readInt()));
+        }
+      }
+      return new Reservation(id, clientFullName, roomNumber, dates);
+    }
+  }
+
+  static int checksum(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+}
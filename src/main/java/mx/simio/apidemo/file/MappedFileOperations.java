@@ -0,0 +1,453 @@
+package mx.simio.apidemo.file;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Memory-mapped backend with one fixed-size slot per reservation. The file starts with a header,
+ * followed by a memory-mapped slot area and an append-only overflow area that holds the
+ * variable-length part of each reservation (client name and dates).
+ *
+ * <p>Every slot holds two versions of the reservation, each with a sequence number and a
+ * checksum. An update writes its name and dates to the end of the overflow area and then
+ * rewrites the older version of the slot in place, so a write costs one slot and one overflow
+ * entry and a torn slot write falls back to the previous version. On startup the file is mapped
+ * and each slot is decoded from its newest valid version.
+ *
+ * <p>The file is rewritten from scratch when the slot area is full, when more than half of the
+ * overflow area belongs to superseded versions, and on {@link #writeToFile(Set)}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "file.backend", havingValue = "mapped")
+public class MappedFileOperations implements FileOperations {
+
+  private static final int MAGIC = 0x52534D46;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 64;
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_FORMAT_VERSION = 4;
+  private static final int HEADER_SLOT_CAPACITY = 8;
+  private static final int HEADER_SLOT_COUNT = 12;
+  private static final int HEADER_OVERFLOW_END = 16;
+
+  private static final int VERSION_SIZE = 40;
+  private static final int SLOT_SIZE = 2 * VERSION_SIZE;
+  private static final int VERSION_SEQUENCE = 0;
+  private static final int VERSION_ID = 4;
+  private static final int VERSION_ROOM = 8;
+  private static final int VERSION_FLAGS = 12;
+  private static final int VERSION_OFFSET = 16;
+  private static final int VERSION_NAME_LENGTH = 24;
+  private static final int VERSION_DATE_COUNT = 28;
+  private static final int VERSION_CHECKSUM = 32;
+
+  private static final int HAS_NAME = 1;
+  private static final int HAS_ROOM = 1 << 1;
+  private static final int HAS_DATES = 1 << 2;
+
+  private static final int MIN_SLOT_CAPACITY = 1024;
+  private static final long MIN_COMPACTION_GARBAGE = 1 << 20;
+
+  private final Path path;
+  private final boolean fsync;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final Map<Integer, Integer> slotById = new HashMap<>();
+
+  private FileChannel channel;
+  private MappedByteBuffer slots;
+  private int slotCapacity;
+  private int slotCount;
+  private int[] sequences;
+  private long overflowEnd;
+  private long garbageBytes;
+
+  public MappedFileOperations(@Value("${file.path:reservations.txt}") String filePath,
+      @Value("${file.mapped.fsync:true}") boolean fsync) {
+    this.path = Path.of(filePath);
+    this.fsync = fsync;
+  }
+
+  @Override
+  public void writeToFile(Set<Reservation> reservations) {
+    lock.lock();
+    try {
+      rewrite(reservations, slotCapacityFor(reservations.size()));
+    } catch (IOException e) {
+      log.error("Error writing to file", e);
+      throw new ServiceException("Error writing to file");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Set<Reservation> readFromFile() {
+    lock.lock();
+    try {
+      closeFile();
+      if (!Files.exists(path) || Files.size(path) == 0) {
+        rewrite(List.of(), MIN_SLOT_CAPACITY);
+        return new HashSet<>();
+      }
+      openFile();
+      bytesRead.addAndGet(channel.size());
+      Set<Reservation> reservations = new HashSet<>(decodeAll());
+      log.info("Mapped {} reservation slots", slotCount);
+      return reservations;
+    } catch (IOException e) {
+      log.error("Error reading from file", e);
+      throw new ServiceException("Error reading from file");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void appendToFile(Reservation reservation) {
+    appendAllToFile(List.of(reservation));
+  }
+
+  @Override
+  public void appendAllToFile(Collection<Reservation> reservations) {
+    if (reservations.isEmpty()) {
+      return;
+    }
+
+    lock.lock();
+    try {
+      if (channel == null) {
+        throw new IllegalStateException("The reservation file has not been read yet");
+      }
+      ensureSlotCapacity(reservations);
+      long overflowStartedAt = overflowEnd;
+
+      long[] offsets = new long[reservations.size()];
+      int index = 0;
+      for (Reservation reservation : reservations) {
+        offsets[index++] = appendOverflow(reservation);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+
+      index = 0;
+      for (Reservation reservation : reservations) {
+        writeSlot(reservation, offsets[index++]);
+      }
+      slots.putInt(HEADER_SLOT_COUNT, slotCount);
+      slots.putLong(HEADER_OVERFLOW_END, overflowEnd);
+      if (fsync) {
+        slots.force();
+      }
+      bytesWritten.addAndGet(overflowEnd - overflowStartedAt
+          + (long) reservations.size() * VERSION_SIZE);
+
+      long overflowSize = overflowEnd - overflowStart(slotCapacity);
+      if (garbageBytes > MIN_COMPACTION_GARBAGE && garbageBytes * 2 > overflowSize) {
+        rewrite(decodeAll(), slotCapacity);
+      }
+    } catch (IOException | IllegalStateException e) {
+      log.error("Error writing reservation slot", e);
+      throw new ServiceException("Error writing reservation slot");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean supportsAppend() {
+    return true;
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  @PreDestroy
+  public void close() {
+    lock.lock();
+    try {
+      closeFile();
+    } catch (IOException e) {
+      log.error("Error closing reservation file", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void openFile() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    if (header.getInt(HEADER_MAGIC) != MAGIC
+        || header.getInt(HEADER_FORMAT_VERSION) != FORMAT_VERSION) {
+      closeFile();
+      throw new IOException("Unrecognized reservation file format in " + path);
+    }
+
+    slotCapacity = header.getInt(HEADER_SLOT_CAPACITY);
+    slotCount = header.getInt(HEADER_SLOT_COUNT);
+    overflowEnd = header.getLong(HEADER_OVERFLOW_END);
+    slots = channel.map(MapMode.READ_WRITE, 0, overflowStart(slotCapacity));
+    sequences = new int[slotCapacity];
+    slotById.clear();
+    garbageBytes = 0;
+  }
+
+  private void closeFile() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+      slots = null;
+    }
+  }
+
+  /**
+   * Decodes the newest valid version of every used slot. Also rebuilds the in-memory slot index
+   * and moves the end of the overflow area past any entry a slot refers to, in case the header
+   * was not updated before a crash.
+   */
+  private List<Reservation> decodeAll() throws IOException {
+    long overflowStart = overflowStart(slotCapacity);
+    long fileEnd = channel.size();
+    if (fileEnd - overflowStart > Integer.MAX_VALUE) {
+      throw new IOException("The overflow area of " + path + " exceeds 2 GB");
+    }
+    MappedByteBuffer overflow = channel.map(MapMode.READ_ONLY, overflowStart,
+        fileEnd - overflowStart);
+
+    List<Reservation> reservations = new ArrayList<>(slotCount);
+    slotById.clear();
+    for (int slot = 0; slot < slotCount; slot++) {
+      int version = newestVersion(slot);
+      if (version < 0) {
+        log.warn("Skipping reservation slot {} without a valid version", slot);
+        continue;
+      }
+      int position = versionPosition(slot, version);
+      long offset = slots.getLong(position + VERSION_OFFSET);
+      int flags = slots.getInt(position + VERSION_FLAGS);
+      int nameLength = slots.getInt(position + VERSION_NAME_LENGTH);
+      int dateCount = slots.getInt(position + VERSION_DATE_COUNT);
+
+      int entry = (int) (offset - overflowStart);
+      String clientFullName = null;
+      if ((flags & HAS_NAME) != 0) {
+        byte[] name = new byte[nameLength];
+        overflow.get(entry, name);
+        clientFullName = new String(name, StandardCharsets.UTF_8);
+      }
+      List<LocalDate> dates = null;
+      if ((flags & HAS_DATES) != 0) {
+        dates = new ArrayList<>(dateCount);
+        for (int i = 0; i < dateCount; i++) {
+          dates.add(LocalDate.ofEpochDay(overflow.getInt(entry + nameLength + i * Integer.BYTES)));
+        }
+      }
+      Integer roomNumber = (flags & HAS_ROOM) != 0 ? slots.getInt(position + VERSION_ROOM) : null;
+      Integer id = slots.getInt(position + VERSION_ID);
+
+      reservations.add(new Reservation(id, clientFullName, roomNumber, dates));
+      slotById.put(id, slot);
+      sequences[slot] = slots.getInt(position + VERSION_SEQUENCE);
+      overflowEnd = Math.max(overflowEnd, offset + nameLength + (long) dateCount * Integer.BYTES);
+    }
+    return reservations;
+  }
+
+  /**
+   * Rewrites the whole file with the given reservations into a temporary file and atomically
+   * replaces the current one with it.
+   */
+  private void rewrite(Collection<Reservation> reservations, int capacity) throws IOException {
+    Path temporary = Path.of(path + ".tmp");
+    closeFile();
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      channel = out;
+      slots = out.map(MapMode.READ_WRITE, 0, overflowStart(capacity));
+      slots.putInt(HEADER_MAGIC, MAGIC);
+      slots.putInt(HEADER_FORMAT_VERSION, FORMAT_VERSION);
+      slots.putInt(HEADER_SLOT_CAPACITY, capacity);
+      slotCapacity = capacity;
+      slotCount = 0;
+      sequences = new int[capacity];
+      slotById.clear();
+      overflowEnd = overflowStart(capacity);
+      garbageBytes = 0;
+
+      for (Reservation reservation : reservations) {
+        writeSlot(reservation, appendOverflow(reservation));
+      }
+      slots.putInt(HEADER_SLOT_COUNT, slotCount);
+      slots.putLong(HEADER_OVERFLOW_END, overflowEnd);
+      slots.force();
+      out.force(true);
+      bytesWritten.addAndGet(overflowEnd);
+    } finally {
+      channel = null;
+      slots = null;
+    }
+
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    slots = channel.map(MapMode.READ_WRITE, 0, overflowStart(slotCapacity));
+  }
+
+  private void ensureSlotCapacity(Collection<Reservation> reservations) throws IOException {
+    long newSlots = reservations.stream()
+        .map(Reservation::getId)
+        .filter(id -> !slotById.containsKey(id))
+        .distinct()
+        .count();
+    if (slotCount + newSlots > slotCapacity) {
+      List<Reservation> current = decodeAll();
+      rewrite(current, slotCapacityFor((int) (slotCount + newSlots)));
+    }
+  }
+
+  /**
+   * Appends the client name and dates of a reservation to the overflow area.
+   *
+   * @return the file offset of the entry
+   */
+  private long appendOverflow(Reservation reservation) throws IOException {
+    byte[] name = nameBytes(reservation);
+    List<LocalDate> dates = reservation.getReservationDates();
+    int dateCount = dates == null ? 0 : dates.size();
+
+    ByteBuffer entry = ByteBuffer.allocate(name.length + dateCount * Integer.BYTES);
+    entry.put(name);
+    if (dates != null) {
+      for (LocalDate date : dates) {
+        entry.putInt((int) date.toEpochDay());
+      }
+    }
+    entry.flip();
+
+    long offset = overflowEnd;
+    long position = offset;
+    while (entry.hasRemaining()) {
+      position += channel.write(entry, position);
+    }
+    overflowEnd = position;
+    return offset;
+  }
+
+  /**
+   * Writes a reservation into the older version of its slot, or into a new slot if it has none.
+   */
+  private void writeSlot(Reservation reservation, long offset) {
+    Integer slot = slotById.get(reservation.getId());
+    if (slot == null) {
+      slot = slotCount++;
+      slotById.put(reservation.getId(), slot);
+    } else {
+      int current = versionPosition(slot, sequences[slot] & 1);
+      garbageBytes += slots.getInt(current + VERSION_NAME_LENGTH)
+          + (long) slots.getInt(current + VERSION_DATE_COUNT) * Integer.BYTES;
+    }
+
+    List<LocalDate> dates = reservation.getReservationDates();
+    int flags = (reservation.getClientFullName() != null ? HAS_NAME : 0)
+        | (reservation.getRoomNumber() != null ? HAS_ROOM : 0)
+        | (dates != null ? HAS_DATES : 0);
+    int sequence = sequences[slot] + 1;
+
+    ByteBuffer version = ByteBuffer.allocate(VERSION_SIZE);
+    version.putInt(VERSION_SEQUENCE, sequence);
+    version.putInt(VERSION_ID, reservation.getId());
+    version.putInt(VERSION_ROOM, reservation.getRoomNumber() != null
+        ? reservation.getRoomNumber() : 0);
+    version.putInt(VERSION_FLAGS, flags);
+    version.putLong(VERSION_OFFSET, offset);
+    version.putInt(VERSION_NAME_LENGTH, nameBytes(reservation).length);
+    version.putInt(VERSION_DATE_COUNT, dates == null ? 0 : dates.size());
+    version.putInt(VERSION_CHECKSUM, checksum(version));
+
+    slots.put(versionPosition(slot, sequence & 1), version, 0, VERSION_SIZE);
+    sequences[slot] = sequence;
+  }
+
+  /**
+   * Returns which of the two versions of a slot is the newest one with a valid checksum, or -1 if
+   * neither is valid.
+   */
+  private int newestVersion(int slot) {
+    int newest = -1;
+    int newestSequence = 0;
+    for (int version = 0; version < 2; version++) {
+      int position = versionPosition(slot, version);
+      ByteBuffer bytes = ByteBuffer.allocate(VERSION_SIZE);
+      slots.get(position, bytes.array());
+      int sequence = bytes.getInt(VERSION_SEQUENCE);
+      if (sequence > newestSequence && bytes.getInt(VERSION_CHECKSUM) == checksum(bytes)) {
+        newest = version;
+        newestSequence = sequence;
+      }
+    }
+    return newest;
+  }
+
+  private static int versionPosition(int slot, int version) {
+    return HEADER_SIZE + slot * SLOT_SIZE + version * VERSION_SIZE;
+  }
+
+  private static long overflowStart(int capacity) {
+    return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+  }
+
+  private static int slotCapacityFor(int reservations) {
+    return Math.max(MIN_SLOT_CAPACITY, Integer.highestOneBit(Math.max(reservations, 1)) * 2);
+  }
+
+  private static byte[] nameBytes(Reservation reservation) {
+    return reservation.getClientFullName() == null
+        ? new byte[0]
+        : reservation.getClientFullName().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int checksum(ByteBuffer version) {
+    CRC32 crc = new CRC32();
+    crc.update(version.array(), 0, VERSION_CHECKSUM);
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,451 @@
+package mx.simio.apidemo.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import mx.simio.apidemo.reservation.DateRuns;
+import mx.simio.apidemo.reservation.Reservation;
+
+/**
+ * Versioned binary format of a set of reservations, used for snapshots instead of Java
+ * serialization.
+ *
+ * <p>A snapshot starts with the {@link #MAGIC} bytes, a format version byte and the number of
+ * reservations as a varint. Each reservation is then written as a flags byte saying which fields
+ * are present, the id and the room number as zigzag varints, the client name as a varint length
+ * followed by its UTF-8 bytes, and the dates as runs of consecutive days. The dates start with
+ * the number of runs, and every run is the zigzag varint distance from the day after the previous
+ * run (epoch day 0 for the first one) followed by the run length minus one as a varint, so a
+ * stay of any length usually takes three or four bytes. Dates keep their original order.
+ *
+ * <p>Since version 2 the reservations are split into chunks of up to {@link #CHUNK_SIZE}. Every
+ * chunk is its length in bytes as a 4-byte int, followed by its number of reservations as a
+ * varint and the reservations themselves, so that a reader can find all chunks without decoding
+ * them and decode them in parallel. Chunks are also encoded in parallel. Version 1 files, a
+ * single run of reservations after the count, are still read.
+ */
+final class ReservationCodec {
+
+  static final byte[] MAGIC = {'R', 'S', 'V', 'B'};
+  static final int FORMAT_VERSION = 2;
+  static final int CHUNK_SIZE = 1 << 14;
+
+  private static final int UNCHUNKED_FORMAT_VERSION = 1;
+
+  private static final int HAS_ID = 1;
+  private static final int HAS_NAME = 1 << 1;
+  private static final int HAS_ROOM = 1 << 2;
+  private static final int HAS_DATES = 1 << 3;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_NAME_LENGTH = 1 << 20;
+  private static final int MAX_DATES = 1 << 20;
+
+  private ReservationCodec() {
+  }
+
+  /**
+   * Tells whether the first bytes of a file belong to this format.
+   */
+  static boolean hasMagic(byte[] header) {
+    return header.length >= MAGIC.length
+        && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+  }
+
+  static void write(Collection<Reservation> reservations, OutputStream out) throws IOException {
+    List<Reservation> all = new ArrayList<>(reservations);
+    int chunks = (all.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    List<byte[]> encoded = IntStream.range(0, chunks)
+        .parallel()
+        .mapToObj(chunk -> encodeChunk(
+            all.subList(chunk * CHUNK_SIZE, Math.min(all.size(), (chunk + 1) * CHUNK_SIZE))))
+        .toList();
+
+    Encoder encoder = new Encoder(out);
+    encoder.writeBytes(MAGIC);
+    encoder.writeByte(FORMAT_VERSION);
+    encoder.writeVarLong(all.size());
+    for (byte[] chunk : encoded) {
+      encoder.writeInt(chunk.length);
+      encoder.writeBytes(chunk);
+    }
+    encoder.flush();
+  }
+
+  /**
+   * Reads a whole snapshot sequentially.
+   */
+  static Set<Reservation> read(InputStream in) throws IOException {
+    Decoder decoder = new Decoder(in);
+    int version = readHeader(decoder);
+    long count = readCount(decoder);
+    Set<Reservation> reservations = new HashSet<>((int) Math.min(count * 4 / 3 + 1, 1 << 20));
+    if (version == UNCHUNKED_FORMAT_VERSION) {
+      readReservations(decoder, count, reservations::add);
+      return reservations;
+    }
+
+    long read = 0;
+    while (!decoder.isAtEnd()) {
+      decoder.readInt();
+      long chunkCount = readCount(decoder);
+      readReservations(decoder, chunkCount, reservations::add);
+      read += chunkCount;
+    }
+    if (read != count) {
+      throw new IOException("Expected " + count + " reservations but found " + read);
+    }
+    return reservations;
+  }
+
+  /**
+   * Decodes the chunks of a snapshot held in memory in parallel, on the common fork-join pool,
+   * and hands each one to the consumer as soon as it is decoded. The consumer is called from
+   * several threads at once. A version 1 snapshot is handed over as one chunk.
+   *
+   * @return the number of reservations read
+   */
+  static long readChunks(ByteBuffer snapshot, Consumer<List<Reservation>> consumer)
+      throws IOException {
+    Decoder decoder = new Decoder(snapshot.duplicate());
+    int version = readHeader(decoder);
+    long count = readCount(decoder);
+    if (version == UNCHUNKED_FORMAT_VERSION) {
+      List<Reservation> reservations = new ArrayList<>((int) Math.min(count, 1 << 20));
+      readReservations(decoder, count, reservations::add);
+      consumer.accept(reservations);
+      return count;
+    }
+
+    List<ByteBuffer> chunks = new ArrayList<>();
+    ByteBuffer remaining = decoder.remaining();
+    while (remaining.hasRemaining()) {
+      if (remaining.remaining() < Integer.BYTES) {
+        throw new EOFException("Unexpected end of reservation file");
+      }
+      int length = remaining.getInt();
+      if (length < 0 || length > remaining.remaining()) {
+        throw new EOFException("Unexpected end of reservation file");
+      }
+      chunks.add(remaining.slice(remaining.position(), length));
+      remaining.position(remaining.position() + length);
+    }
+
+    AtomicLong read = new AtomicLong();
+    try {
+      chunks.parallelStream().forEach(chunk -> {
+        try {
+          Decoder chunkDecoder = new Decoder(chunk);
+          long chunkCount = readCount(chunkDecoder);
+          List<Reservation> reservations = new ArrayList<>((int) Math.min(chunkCount, 1 << 20));
+          readReservations(chunkDecoder, chunkCount, reservations::add);
+          consumer.accept(reservations);
+          read.addAndGet(reservations.size());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (read.get() != count) {
+      throw new IOException("Expected " + count + " reservations but found " + read.get());
+    }
+    return count;
+  }
+
+  private static byte[] encodeChunk(List<Reservation> reservations) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(reservations.size() * 32);
+    try {
+      Encoder encoder = new Encoder(out);
+      encoder.writeVarLong(reservations.size());
+      for (Reservation reservation : reservations) {
+        writeReservation(reservation, encoder);
+      }
+      encoder.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static int readHeader(Decoder decoder) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    decoder.readBytes(magic);
+    if (!hasMagic(magic)) {
+      throw new IOException("Not a binary reservation file");
+    }
+    int version = decoder.readByte();
+    if (version != FORMAT_VERSION && version != UNCHUNKED_FORMAT_VERSION) {
+      throw new IOException("Unsupported reservation file format version " + version);
+    }
+    return version;
+  }
+
+  private static long readCount(Decoder decoder) throws IOException {
+    long count = decoder.readVarLong();
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("Invalid reservation count " + count);
+    }
+    return count;
+  }
+
+  private static void readReservations(Decoder decoder, long count,
+      Consumer<Reservation> consumer) throws IOException {
+    for (long i = 0; i < count; i++) {
+      consumer.accept(readReservation(decoder));
+    }
+  }
+
+  private static void writeReservation(Reservation reservation, Encoder encoder)
+      throws IOException {
+    List<LocalDate> dates = reservation.getReservationDates();
+    int flags = (reservation.getId() != null ? HAS_ID : 0)
+        | (reservation.getClientFullName() != null ? HAS_NAME : 0)
+        | (reservation.getRoomNumber() != null ? HAS_ROOM : 0)
+        | (dates != null ? HAS_DATES : 0);
+    encoder.writeByte(flags);
+
+    if (reservation.getId() != null) {
+      encoder.writeSignedVarLong(reservation.getId());
+    }
+    if (reservation.getRoomNumber() != null) {
+      encoder.writeSignedVarLong(reservation.getRoomNumber());
+    }
+    if (reservation.getClientFullName() != null) {
+      byte[] name = reservation.getClientFullName().getBytes(StandardCharsets.UTF_8);
+      encoder.writeVarLong(name.length);
+      encoder.writeBytes(name);
+    }
+    if (dates != null) {
+      writeDates(dates, encoder);
+    }
+  }
+
+  private static void writeDates(List<LocalDate> dates, Encoder encoder) throws IOException {
+    DateRuns runs = DateRuns.of(dates);
+    encoder.writeVarLong(runs.runCount());
+    long nextDay = 0;
+    for (int run = 0; run < runs.runCount(); run++) {
+      encoder.writeSignedVarLong(runs.runStart(run) - nextDay);
+      encoder.writeVarLong(runs.runLength(run) - 1L);
+      nextDay = runs.runStart(run) + runs.runLength(run);
+    }
+  }
+
+  private static Reservation readReservation(Decoder decoder) throws IOException {
+    int flags = decoder.readByte();
+    Integer id = (flags & HAS_ID) != 0 ? decoder.readSignedInt() : null;
+    Integer roomNumber = (flags & HAS_ROOM) != 0 ? decoder.readSignedInt() : null;
+
+    String clientFullName = null;
+    if ((flags & HAS_NAME) != 0) {
+      long length = decoder.readVarLong();
+      if (length < 0 || length > MAX_NAME_LENGTH) {
+        throw new IOException("Invalid client name length " + length);
+      }
+      byte[] name = new byte[(int) length];
+      decoder.readBytes(name);
+      clientFullName = new String(name, StandardCharsets.UTF_8);
+    }
+
+    List<LocalDate> dates = (flags & HAS_DATES) != 0 ? readDates(decoder) : null;
+    return new Reservation(id, clientFullName, roomNumber, dates);
+  }
+
+  private static DateRuns readDates(Decoder decoder) throws IOException {
+    long runs = decoder.readVarLong();
+    if (runs < 0 || runs > MAX_DATES) {
+      throw new IOException("Invalid number of date runs " + runs);
+    }
+
+    DateRuns.Builder dates = new DateRuns.Builder();
+    long size = 0;
+    long nextDay = 0;
+    for (long run = 0; run < runs; run++) {
+      long start = nextDay + decoder.readSignedVarLong();
+      long length = decoder.readVarLong() + 1;
+      if (length <= 0 || size + length > MAX_DATES) {
+        throw new IOException("Invalid date run length " + length);
+      }
+      dates.add(start, (int) length);
+      size += length;
+      nextDay = start + length;
+    }
+    return dates.build();
+  }
+
+  /**
+   * Buffers the output itself, so that writing a byte is an array store rather than a call into a
+   * synchronized stream.
+   */
+  private static final class Encoder {
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    Encoder(OutputStream out) {
+      this.out = out;
+    }
+
+    void writeByte(int value) throws IOException {
+      if (position == buffer.length) {
+        flushBuffer();
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+        writeByte((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      writeByte((int) value);
+    }
+
+    void writeSignedVarLong(long value) throws IOException {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeInt(int value) throws IOException {
+      writeByte(value >>> 24);
+      writeByte(value >>> 16);
+      writeByte(value >>> 8);
+      writeByte(value);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+      if (bytes.length > buffer.length - position) {
+        flushBuffer();
+      }
+      if (bytes.length > buffer.length) {
+        out.write(bytes);
+      } else {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+      }
+    }
+
+    void flush() throws IOException {
+      flushBuffer();
+      out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  /**
+   * Reads either from a buffer that holds the whole input, or from a stream through a buffer of
+   * its own.
+   */
+  private static final class Decoder {
+
+    private final InputStream in;
+    private final ByteBuffer buffer;
+
+    Decoder(InputStream in) {
+      this.in = in;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    }
+
+    Decoder(ByteBuffer buffer) {
+      this.in = null;
+      this.buffer = buffer;
+    }
+
+    int readByte() throws IOException {
+      if (!buffer.hasRemaining()) {
+        fill();
+      }
+      return buffer.get() & 0xFF;
+    }
+
+    int readInt() throws IOException {
+      return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < Long.SIZE; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint");
+    }
+
+    long readSignedVarLong() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readSignedInt() throws IOException {
+      long value = readSignedVarLong();
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+        throw new IOException("Value out of range " + value);
+      }
+      return (int) value;
+    }
+
+    void readBytes(byte[] bytes) throws IOException {
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!buffer.hasRemaining()) {
+          fill();
+        }
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.get(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    boolean isAtEnd() throws IOException {
+      if (buffer.hasRemaining()) {
+        return false;
+      }
+      if (in == null) {
+        return true;
+      }
+      int read = in.read(buffer.array());
+      if (read <= 0) {
+        return true;
+      }
+      buffer.position(0).limit(read);
+      return false;
+    }
+
+    /**
+     * Returns the unread part of an in-memory input.
+     */
+    ByteBuffer remaining() {
+      return buffer.slice();
+    }
+
+    private void fill() throws IOException {
+      if (isAtEnd()) {
+        throw new EOFException("Unexpected end of reservation file");
+      }
+    }
+  }
+}
@@ -0,0 +1,849 @@
+package mx.simio.apidemo.file;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backend that splits the reservations by room into {@code file.shards} partitions, each kept in
+ * its own {@link ReservationCodec} snapshot file with an append-only log next to it. Every shard
+ * has its own lock, so changes to rooms of different shards are written at the same time, and a
+ * change costs one record and one fsync on the log of its shard rather than a rewrite.
+ *
+ * <p>A shard's log is folded into a new snapshot of that shard once it holds
+ * {@code file.shards.compaction-threshold} records, and every log is folded when the whole set is
+ * written, which the checkpointer does for its full snapshots and the application on shutdown.
+ * Snapshots are named {@code <file.path>.shard-<i>-of-<n>.<generation>}, each with its log at the
+ * same name ending in {@code .log}, and become current when the manifest at
+ * {@code <file.path>.shards}, listing one snapshot per shard, is atomically replaced. Folding a
+ * shard therefore replaces its snapshot and its log together, even if it is interrupted by a crash.
+ *
+ * <p>Log records carry a sequence number and either a reservation or the removal of an id. A
+ * reservation moved to a room of another shard is appended to the log of its new shard before it
+ * is removed from the old one. If a crash comes in between, the reservation is found in both
+ * shards on the next start: the copy with the latest record is kept and the other shard is given
+ * a removal. A torn record at the tail of a log is discarded, and the records of an append that
+ * fails are truncated away before the error is thrown.
+ *
+ * <p>The backend keeps no reservations of its own, so that they stay wherever the store keeps
+ * them, off the heap included. It only tracks the ids held by each shard, one bitmap per shard,
+ * and ids must therefore not be negative. When there is no manifest, the single snapshot at
+ * {@code file.path} is read instead, and it is replaced by shards on the next write. Changing the
+ * number of shards rewrites every shard on the next write too.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "file.backend", havingValue = "sharded")
+public class ShardedFileOperations implements FileOperations {
+
+  private static final byte PUT = 0;
+  private static final byte REMOVE = 1;
+  private static final int RECORD_HEADER = Long.BYTES + 1;
+
+  private final Path path;
+  private final Path manifestPath;
+  private final int shardCount;
+  private final int compactionThreshold;
+  private final ReentrantLock[] shardLocks;
+  private final FileChannel[] logs;
+  private final int[] logRecords;
+  private final List<BitSet> shardIds;
+  private final ReentrantLock idsLock = new ReentrantLock();
+  private final ReentrantLock manifestLock = new ReentrantLock();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
+
+  private volatile List<String> currentFiles = List.of();
+  private volatile boolean rewriteAll = true;
+  private List<Path> sourceFiles = List.of();
+  private long generation;
+
+  public ShardedFileOperations(@Value("${file.path:reservations.txt}") String filePath,
+      @Value("${file.shards:16}") int shardCount,
+      @Value("${file.shards.compaction-threshold:10000}") int compactionThreshold) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("There must be at least one shard");
+    }
+    if (compactionThreshold < 1) {
+      throw new IllegalArgumentException("The compaction threshold must be positive");
+    }
+    this.path = Path.of(filePath).toAbsolutePath();
+    this.manifestPath = Path.of(this.path + ".shards");
+    this.shardCount = shardCount;
+    this.compactionThreshold = compactionThreshold;
+    this.shardLocks = new ReentrantLock[shardCount];
+    this.logs = new FileChannel[shardCount];
+    this.logRecords = new int[shardCount];
+    this.shardIds = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shardLocks[i] = new ReentrantLock();
+      shardIds.add(new BitSet());
+    }
+  }
+
+  @Override
+  public void writeToFile(Set<Reservation> reservations) {
+    int[] all = allShards();
+    lockShards(all);
+    try {
+      writeAll(reservations);
+    } finally {
+      unlockShards(all);
+    }
+  }
+
+  @Override
+  public Set<Reservation> readFromFile() {
+    Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
+    readChunks(reservations::addAll);
+    return new HashSet<>(reservations);
+  }
+
+  @Override
+  public void readChunks(Consumer<Collection<Reservation>> consumer) {
+    int[] all = allShards();
+    lockShards(all);
+    try {
+      closeLogs();
+      clearIds();
+      List<Path> files = readManifest();
+      if (!Files.exists(manifestPath) && Files.exists(path)) {
+        log.info("Reading the single snapshot, it will be rewritten as {} shards", shardCount);
+        files = List.of(path);
+      }
+      deleteUncommittedFiles();
+      sourceFiles = files;
+      for (Path file : files) {
+        bytesRead.addAndGet(sizeOf(file) + sizeOf(logPath(file)));
+      }
+
+      int[] records = new int[files.size()];
+      List<Set<Integer>> stale = readFiles(files, records, chunk -> {
+        trackIds(chunk);
+        consumer.accept(chunk);
+      });
+      Arrays.fill(logRecords, 0);
+      if (!rewriteAll) {
+        System.arraycopy(records, 0, logRecords, 0, shardCount);
+        removeStale(stale);
+      }
+    } catch (IOException e) {
+      log.error("Error reading shard files", e);
+      throw new ServiceException("Error reading from file");
+    } finally {
+      unlockShards(all);
+    }
+  }
+
+  @Override
+  public void appendAllToFile(Collection<Reservation> reservations) {
+    if (reservations.isEmpty()) {
+      return;
+    }
+    Map<Integer, Reservation> changes = new LinkedHashMap<>();
+    for (Reservation reservation : reservations) {
+      changes.put(idOf(reservation), reservation);
+    }
+
+    while (true) {
+      Map<Integer, Integer> sources = currentShards(changes.keySet());
+      int[] shards = rewriteAll ? allShards() : involvedShards(changes.values(), sources);
+      lockShards(shards);
+      try {
+        if (rewriteAll) {
+          if (shards.length == shardCount) {
+            convert(changes);
+            return;
+          }
+        } else if (sources.equals(currentShards(changes.keySet()))) {
+          append(changes, sources);
+          return;
+        }
+      } finally {
+        unlockShards(shards);
+      }
+    }
+  }
+
+  @Override
+  public void appendToFile(Reservation reservation) {
+    appendAllToFile(List.of(reservation));
+  }
+
+  @Override
+  public boolean supportsAppend() {
+    return true;
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  @PreDestroy
+  public void close() {
+    int[] all = allShards();
+    lockShards(all);
+    try {
+      closeLogs();
+    } finally {
+      unlockShards(all);
+    }
+  }
+
+  /**
+   * Returns the shard a reservation belongs to, decided by its room number alone.
+   */
+  int shardOf(Reservation reservation) {
+    return Math.floorMod(Objects.hashCode(reservation.getRoomNumber()), shardCount);
+  }
+
+  /**
+   * Appends the changes to the logs of their shards, and the removal of the moved ones to the logs
+   * of the shards they leave, once every change is durable. If any write fails, every log written
+   * to is truncated back to its previous size. Logs that reached the compaction threshold are then
+   * folded into their snapshots. Called with the locks of the shards involved held.
+   */
+  private void append(Map<Integer, Reservation> changes, Map<Integer, Integer> sources) {
+    Map<Integer, List<ByteBuffer>> puts = new TreeMap<>();
+    Map<Integer, List<ByteBuffer>> removals = new TreeMap<>();
+    for (Reservation reservation : changes.values()) {
+      int shard = shardOf(reservation);
+      puts.computeIfAbsent(shard, key -> new ArrayList<>()).add(putRecord(reservation));
+      Integer source = sources.get(reservation.getId());
+      if (source != null && source != shard) {
+        removals.computeIfAbsent(source, key -> new ArrayList<>())
+            .add(removeRecord(reservation.getId()));
+      }
+    }
+
+    Set<Integer> touched = new TreeSet<>(puts.keySet());
+    touched.addAll(removals.keySet());
+    Map<Integer, Long> sizes = new HashMap<>();
+    try {
+      for (int shard : touched) {
+        sizes.put(shard, logChannel(shard).size());
+      }
+      writeLogs(puts);
+      writeLogs(removals);
+    } catch (IOException | RuntimeException e) {
+      log.error("Error appending to shard logs", e);
+      sizes.forEach(this::truncateLog);
+      throw new ServiceException("Error writing to file");
+    }
+
+    idsLock.lock();
+    try {
+      for (Reservation reservation : changes.values()) {
+        shardIds.forEach(ids -> ids.clear(reservation.getId()));
+        shardIds.get(shardOf(reservation)).set(reservation.getId());
+      }
+    } finally {
+      idsLock.unlock();
+    }
+
+    puts.forEach((shard, records) -> logRecords[shard] += records.size());
+    removals.forEach((shard, records) -> logRecords[shard] += records.size());
+    for (int shard : touched) {
+      if (logRecords[shard] >= compactionThreshold) {
+        fold(shard);
+      }
+    }
+  }
+
+  /**
+   * Rewrites a shard's snapshot with its log applied. The log is durable already, so a failure is
+   * only logged and the fold is tried again on the next append. Called with the shard's lock held.
+   */
+  private void fold(int shard) {
+    try {
+      Map<Integer, Reservation> contents = new ConcurrentHashMap<>();
+      Path file = path.resolveSibling(currentFiles.get(shard));
+      readFiles(List.of(file), new int[1], chunk -> {
+        for (Reservation reservation : chunk) {
+          contents.put(reservation.getId(), reservation);
+        }
+      });
+      writeShards(new int[]{shard}, List.of(contents.values()));
+      log.debug("Folded the log of shard {} into a snapshot of {} reservations", shard,
+          contents.size());
+    } catch (IOException | RuntimeException e) {
+      log.error("Error folding the log of shard {}", shard, e);
+    }
+  }
+
+  /**
+   * Writes the reservations read on startup, with the changes applied, as the configured shards.
+   * Called with every shard's lock held.
+   */
+  private void convert(Map<Integer, Reservation> changes) {
+    Map<Integer, Reservation> reservations = new ConcurrentHashMap<>();
+    try {
+      readFiles(sourceFiles, new int[sourceFiles.size()], chunk -> {
+        for (Reservation reservation : chunk) {
+          reservations.put(reservation.getId(), reservation);
+        }
+      });
+    } catch (IOException e) {
+      log.error("Error reading shard files", e);
+      throw new ServiceException("Error writing to file");
+    }
+    reservations.putAll(changes);
+    writeAll(reservations.values());
+  }
+
+  /**
+   * Writes every shard from the given reservations and empties the logs. Called with every shard's
+   * lock held.
+   */
+  private void writeAll(Collection<Reservation> reservations) {
+    List<List<Reservation>> contents = new ArrayList<>(shardCount);
+    List<BitSet> ids = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      contents.add(new ArrayList<>());
+      ids.add(new BitSet());
+    }
+    for (Reservation reservation : reservations) {
+      int shard = shardOf(reservation);
+      contents.get(shard).add(reservation);
+      ids.get(shard).set(idOf(reservation));
+    }
+
+    writeShards(allShards(), contents);
+
+    idsLock.lock();
+    try {
+      for (int i = 0; i < shardCount; i++) {
+        shardIds.set(i, ids.get(i));
+      }
+    } finally {
+      idsLock.unlock();
+    }
+  }
+
+  /**
+   * Writes new snapshots of the given shards and commits them by replacing the manifest. The
+   * replaced snapshots and their logs are deleted afterwards. If anything fails before the commit,
+   * the new files are deleted and the shards keep their current snapshots and logs.
+   *
+   * @param contents the reservations of each shard, in the order of {@code shards}
+   */
+  private void writeShards(int[] shards, List<? extends Collection<Reservation>> contents) {
+    long next = nextGeneration();
+    String[] written = Arrays.stream(shards)
+        .mapToObj(shard -> shardFileName(shard, next))
+        .toArray(String[]::new);
+
+    boolean converted = rewriteAll;
+    List<String> replaced;
+    try {
+      IntStream.range(0, shards.length).parallel()
+          .forEach(i -> writeShard(written[i], contents.get(i)));
+      replaced = commit(shards, written);
+    } catch (IOException | RuntimeException e) {
+      log.error("Error writing shard files", e);
+      for (String file : written) {
+        deleteQuietly(path.resolveSibling(file));
+      }
+      throw new ServiceException("Error writing to file");
+    }
+
+    for (int shard : shards) {
+      closeLog(shard);
+      logRecords[shard] = 0;
+    }
+    for (String file : replaced) {
+      deleteQuietly(path.resolveSibling(file));
+      deleteQuietly(logPath(path.resolveSibling(file)));
+    }
+    if (converted) {
+      deleteQuietly(path);
+      sourceFiles = List.of();
+    }
+  }
+
+  private void writeShard(String fileName, Collection<Reservation> reservations) {
+    FileUtilImpl file = new FileUtilImpl(path.resolveSibling(fileName).toString());
+    file.writeToFile(new HashSet<>(reservations));
+    bytesWritten.addAndGet(file.getBytesWritten());
+  }
+
+  /**
+   * Replaces the snapshots of the given shards in the manifest. While the shards are still to be
+   * rewritten, every shard is written at once and all the files read on startup are replaced.
+   *
+   * @return the files no longer listed in the manifest
+   */
+  private List<String> commit(int[] shards, String[] written) throws IOException {
+    manifestLock.lock();
+    try {
+      List<String> files = new ArrayList<>(rewriteAll
+          ? Collections.nCopies(shardCount, (String) null) : currentFiles);
+      List<String> replaced = new ArrayList<>(rewriteAll ? currentFiles : List.of());
+      for (int i = 0; i < shards.length; i++) {
+        String previous = files.set(shards[i], written[i]);
+        if (previous != null) {
+          replaced.add(previous);
+        }
+      }
+      writeManifest(generation, files);
+      currentFiles = List.copyOf(files);
+      rewriteAll = false;
+      return replaced;
+    } finally {
+      manifestLock.unlock();
+    }
+  }
+
+  private long nextGeneration() {
+    manifestLock.lock();
+    try {
+      return ++generation;
+    } finally {
+      manifestLock.unlock();
+    }
+  }
+
+  private void writeManifest(long generation, List<String> files) throws IOException {
+    Path temporary = Path.of(manifestPath + ".tmp");
+    List<String> lines = new ArrayList<>(files.size() + 1);
+    lines.add(Long.toString(generation));
+    lines.addAll(files);
+    Files.write(temporary, lines, StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temporary, manifestPath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads the generation and the shard files committed by the manifest, if there is one. Every
+   * shard is rewritten on the next write unless the manifest has one file per configured shard.
+   *
+   * @return the shard files to read
+   */
+  private List<Path> readManifest() throws IOException {
+    generation = 0;
+    currentFiles = List.of();
+    rewriteAll = true;
+    if (!Files.exists(manifestPath)) {
+      return List.of();
+    }
+    List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+    generation = Long.parseLong(lines.get(0));
+    currentFiles = List.copyOf(lines.subList(1, lines.size()));
+    rewriteAll = currentFiles.size() != shardCount;
+    if (rewriteAll) {
+      log.info("Reading {} shards, they will be rewritten as {} shards", currentFiles.size(),
+          shardCount);
+    }
+    return currentFiles.stream().map(path::resolveSibling).toList();
+  }
+
+  /**
+   * Reads the given snapshots, each with its log applied, and hands every reservation to the
+   * consumer once. A reservation found in more than one of them, because of a crash while it was
+   * moved, is only handed over from the one holding its latest record.
+   *
+   * @param records receives the number of records in the log of each file
+   * @return for each file, the ids it holds whose latest record is in another one
+   */
+  private List<Set<Integer>> readFiles(List<Path> files, int[] records,
+      Consumer<Collection<Reservation>> consumer) throws IOException {
+    List<Map<Integer, LogEntry>> entries = new ArrayList<>(files.size());
+    Map<Integer, Integer> owners = new HashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      Map<Integer, LogEntry> latest = new HashMap<>();
+      records[i] = replayLog(logPath(files.get(i)), latest);
+      entries.add(latest);
+      for (Map.Entry<Integer, LogEntry> entry : latest.entrySet()) {
+        LogEntry record = entry.getValue();
+        sequence.accumulateAndGet(record.sequence, Math::max);
+        Integer owner = owners.get(entry.getKey());
+        if (record.reservation != null && (owner == null
+            || entries.get(owner).get(entry.getKey()).sequence < record.sequence)) {
+          owners.put(entry.getKey(), i);
+        }
+      }
+    }
+
+    List<Set<Integer>> stale = new ArrayList<>(files.size());
+    for (int i = 0; i < files.size(); i++) {
+      stale.add(ConcurrentHashMap.newKeySet());
+    }
+    IntStream.range(0, files.size()).parallel().forEach(i -> {
+      Map<Integer, LogEntry> latest = entries.get(i);
+      new FileUtilImpl(files.get(i).toString()).readChunks(chunk -> {
+        List<Reservation> kept = new ArrayList<>(chunk.size());
+        for (Reservation reservation : chunk) {
+          Integer owner = owners.get(reservation.getId());
+          if (latest.containsKey(reservation.getId())) {
+            continue;
+          }
+          if (owner != null && owner != i) {
+            stale.get(i).add(reservation.getId());
+          } else {
+            kept.add(reservation);
+          }
+        }
+        consumer.accept(kept);
+      });
+
+      List<Reservation> appended = new ArrayList<>();
+      latest.forEach((id, record) -> {
+        if (record.reservation == null) {
+          return;
+        }
+        if (owners.get(id) == i) {
+          appended.add(record.reservation);
+        } else {
+          stale.get(i).add(id);
+        }
+      });
+      if (!appended.isEmpty()) {
+        consumer.accept(appended);
+      }
+    });
+    return stale;
+  }
+
+  /**
+   * Appends a removal for every reservation left in a shard by a move that a crash interrupted,
+   * so that the shard no longer holds it once its log is folded. Called on startup with every
+   * shard's lock held.
+   */
+  private void removeStale(List<Set<Integer>> stale) {
+    Map<Integer, List<ByteBuffer>> removals = new TreeMap<>();
+    for (int shard = 0; shard < shardCount; shard++) {
+      for (Integer id : stale.get(shard)) {
+        removals.computeIfAbsent(shard, key -> new ArrayList<>()).add(removeRecord(id));
+      }
+    }
+    if (removals.isEmpty()) {
+      return;
+    }
+    log.warn("Removing {} reservations left in the shards they were moved out of",
+        removals.values().stream().mapToInt(List::size).sum());
+    writeLogs(removals);
+    removals.forEach((shard, records) -> logRecords[shard] += records.size());
+  }
+
+  /**
+   * Applies every intact record of a shard log to the map of latest records by id, and truncates
+   * a torn record left at its tail by a crash.
+   *
+   * @return the number of records replayed
+   */
+  private static int replayLog(Path logFile, Map<Integer, LogEntry> latest) throws IOException {
+    if (!Files.exists(logFile)) {
+      return 0;
+    }
+
+    int records = 0;
+    long validLength = 0;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(logFile)))) {
+      while (true) {
+        byte[] payload;
+        int checksum;
+        try {
+          int length = in.readInt();
+          if (length < RECORD_HEADER
+              || length > JournalFileOperations.MAX_RECORD_LENGTH + RECORD_HEADER) {
+            break;
+          }
+          payload = new byte[length];
+          in.readFully(payload);
+          checksum = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        if (checksum != JournalFileOperations.checksum(payload)) {
+          break;
+        }
+        ByteBuffer record = ByteBuffer.wrap(payload);
+        long sequence = record.getLong();
+        if (record.get() == PUT) {
+          Reservation reservation = JournalFileOperations.decode(
+              Arrays.copyOfRange(payload, RECORD_HEADER, payload.length));
+          latest.put(reservation.getId(), new LogEntry(sequence, reservation));
+        } else {
+          latest.put(record.getInt(), new LogEntry(sequence, null));
+        }
+        validLength += Integer.BYTES + payload.length + Integer.BYTES;
+        records++;
+      }
+    }
+
+    if (validLength < Files.size(logFile)) {
+      log.warn("Discarding torn record at the end of {}", logFile);
+      try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+      }
+    }
+    return records;
+  }
+
+  private ByteBuffer putRecord(Reservation reservation) {
+    return logRecord(PUT, JournalFileOperations.encodePayload(reservation));
+  }
+
+  private ByteBuffer removeRecord(int id) {
+    return logRecord(REMOVE, ByteBuffer.allocate(Integer.BYTES).putInt(id).array());
+  }
+
+  private ByteBuffer logRecord(byte kind, byte[] body) {
+    byte[] payload = ByteBuffer.allocate(RECORD_HEADER + body.length)
+        .putLong(sequence.incrementAndGet())
+        .put(kind)
+        .put(body)
+        .array();
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES);
+    record.putInt(payload.length).put(payload)
+        .putInt(JournalFileOperations.checksum(payload)).flip();
+    return record;
+  }
+
+  /**
+   * Writes the records of each shard to its log and forces them to disk, the shards in parallel.
+   */
+  private void writeLogs(Map<Integer, List<ByteBuffer>> records) {
+    records.entrySet().parallelStream().forEach(entry -> {
+      ByteBuffer[] buffers = entry.getValue().toArray(ByteBuffer[]::new);
+      long remaining = 0;
+      for (ByteBuffer buffer : buffers) {
+        remaining += buffer.remaining();
+      }
+      try {
+        FileChannel channel = logChannel(entry.getKey());
+        bytesWritten.addAndGet(remaining);
+        while (remaining > 0) {
+          remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private FileChannel logChannel(int shard) throws IOException {
+    if (logs[shard] == null) {
+      logs[shard] = FileChannel.open(logPath(path.resolveSibling(currentFiles.get(shard))),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    return logs[shard];
+  }
+
+  /**
+   * Cuts a log back to the size it had before a failed append. If that fails too, the log is
+   * closed so that the next append does not land after the torn records.
+   */
+  private void truncateLog(int shard, long size) {
+    try {
+      logs[shard].truncate(size);
+      logs[shard].force(false);
+    } catch (IOException e) {
+      log.error("Could not truncate the log of shard {}", shard, e);
+      closeLog(shard);
+    }
+  }
+
+  private void closeLog(int shard) {
+    if (logs[shard] == null) {
+      return;
+    }
+    try {
+      logs[shard].close();
+    } catch (IOException e) {
+      log.warn("Could not close the log of shard {}", shard, e);
+    }
+    logs[shard] = null;
+  }
+
+  private void closeLogs() {
+    for (int shard = 0; shard < shardCount; shard++) {
+      closeLog(shard);
+    }
+  }
+
+  /**
+   * Returns the shard currently holding each of the given ids, leaving out the ids of new
+   * reservations.
+   */
+  private Map<Integer, Integer> currentShards(Collection<Integer> ids) {
+    Map<Integer, Integer> shards = new HashMap<>();
+    idsLock.lock();
+    try {
+      for (Integer id : ids) {
+        for (int shard = 0; shard < shardCount; shard++) {
+          if (shardIds.get(shard).get(id)) {
+            shards.put(id, shard);
+            break;
+          }
+        }
+      }
+    } finally {
+      idsLock.unlock();
+    }
+    return shards;
+  }
+
+  private int[] involvedShards(Collection<Reservation> changes, Map<Integer, Integer> sources) {
+    Set<Integer> shards = new TreeSet<>(sources.values());
+    for (Reservation reservation : changes) {
+      shards.add(shardOf(reservation));
+    }
+    return shards.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Records the shard of each reservation read on startup. Called from the reading threads.
+   */
+  private void trackIds(Collection<Reservation> chunk) {
+    idsLock.lock();
+    try {
+      for (Reservation reservation : chunk) {
+        shardIds.get(shardOf(reservation)).set(idOf(reservation));
+      }
+    } finally {
+      idsLock.unlock();
+    }
+  }
+
+  private void clearIds() {
+    idsLock.lock();
+    try {
+      shardIds.forEach(BitSet::clear);
+    } finally {
+      idsLock.unlock();
+    }
+  }
+
+  private static int idOf(Reservation reservation) {
+    int id = reservation.getId();
+    if (id < 0) {
+      throw new IllegalArgumentException("Sharded reservation ids must not be negative");
+    }
+    return id;
+  }
+
+  /**
+   * Takes the locks of the given shards, which must be in ascending order so that two callers
+   * never wait for each other.
+   */
+  private void lockShards(int[] shards) {
+    for (int shard : shards) {
+      shardLocks[shard].lock();
+    }
+  }
+
+  private void unlockShards(int[] shards) {
+    for (int i = shards.length - 1; i >= 0; i--) {
+      shardLocks[shards[i]].unlock();
+    }
+  }
+
+  private int[] allShards() {
+    return IntStream.range(0, shardCount).toArray();
+  }
+
+  /**
+   * Deletes shard files left behind by a write that failed or crashed before its commit, keeping
+   * the logs of the committed ones.
+   */
+  private void deleteUncommittedFiles() throws IOException {
+    try (DirectoryStream<Path> candidates = Files.newDirectoryStream(path.getParent(),
+        path.getFileName() + ".shard-*")) {
+      for (Path candidate : candidates) {
+        String name = candidate.getFileName().toString();
+        String snapshot = name.endsWith(".log") ? name.substring(0, name.length() - 4) : name;
+        if (!currentFiles.contains(snapshot)) {
+          deleteQuietly(candidate);
+        }
+      }
+    }
+  }
+
+  private String shardFileName(int shard, long generation) {
+    return path.getFileName() + ".shard-" + shard + "-of-" + shardCount + "." + generation;
+  }
+
+  private static Path logPath(Path snapshot) {
+    return Path.of(snapshot + ".log");
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete {}", file, e);
+    }
+  }
+
+  private static long sizeOf(Path file) {
+    try {
+      return Files.exists(file) ? Files.size(file) : 0;
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * The latest log record of an id: the reservation, or {@code null} if it was removed from the
+   * shard.
+   */
+  private static final class LogEntry {
+
+    private final long sequence;
+    private final Reservation reservation;
+
+    private LogEntry(long sequence, Reservation reservation) {
+      this.sequence = sequence;
+      this.reservation = reservation;
+    }
+  }
+}
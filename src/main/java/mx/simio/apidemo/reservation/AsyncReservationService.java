@@ -0,0 +1,115 @@
+package mx.simio.apidemo.reservation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs creates and updates of the {@link ReservationService} on a bounded pool of its own, so that
+ * the request thread that received them is released while the change is stored and persisted.
+ * The returned future completes once the change is as durable as the synchronous call would have
+ * made it.
+ *
+ * <p>At most {@code reservation.async.threads} changes run at once and at most
+ * {@code reservation.async.queue-capacity} wait for a thread. Once the queue is full, further
+ * changes are refused with a {@link ServiceUnavailableException} right away, so clients are told to
+ * back off instead of waiting behind an ever longer queue.
+ */
+@Slf4j
+@Component
+public class AsyncReservationService implements MeterBinder {
+
+  private final ReservationService reservationService;
+  private final ThreadPoolExecutor executor;
+
+  private volatile Counter rejected;
+
+  public AsyncReservationService(ReservationService reservationService,
+      @Value("${reservation.async.threads:16}") int threads,
+      @Value("${reservation.async.queue-capacity:256}") int queueCapacity) {
+    this.reservationService = reservationService;
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "reservation-async-" + counter.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Registers the number of waiting changes and a counter of refused ones. Until this is called,
+   * nothing is counted.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("reservation.async.queue.size", executor, pool -> pool.getQueue().size())
+        .description("Changes waiting for an asynchronous reservation thread")
+        .register(registry);
+    rejected = Counter.builder("reservation.async.rejected")
+        .description("Changes refused because the asynchronous queue was full")
+        .register(registry);
+  }
+
+  /**
+   * Creates a reservation on the asynchronous pool.
+   *
+   * @throws ServiceUnavailableException if too many changes are already waiting
+   * @see ReservationService#createReservation(ReservationRequest)
+   */
+  public CompletableFuture<ReservationResponse> createReservation(ReservationRequest request) {
+    return submit(() -> reservationService.createReservation(request));
+  }
+
+  /**
+   * Updates a reservation on the asynchronous pool.
+   *
+   * @throws ServiceUnavailableException if too many changes are already waiting
+   * @see ReservationService#updateReservation(Integer, ReservationRequest)
+   */
+  public CompletableFuture<ReservationResponse> updateReservation(Integer id,
+      ReservationRequest request) {
+    return submit(() -> reservationService.updateReservation(id, request));
+  }
+
+  /**
+   * Stops accepting changes and waits for the queued ones, so that they are stored before the
+   * reservations are saved on shutdown.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        log.warn("Asynchronous reservation changes still running at shutdown");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> change) {
+    try {
+      return CompletableFuture.supplyAsync(change, executor);
+    } catch (RejectedExecutionException e) {
+      Counter counter = rejected;
+      if (counter != null) {
+        counter.increment();
+      }
+      throw new ServiceUnavailableException("Too many pending reservation changes, retry later");
+    }
+  }
+}
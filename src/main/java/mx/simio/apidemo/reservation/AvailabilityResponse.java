@@ -0,0 +1,17 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AvailabilityResponse {
+
+  private Integer roomNumber;
+  private LocalDate from;
+  private LocalDate to;
+  private List<LocalDate> availableDates;
+  private List<LocalDate> bookedDates;
+}
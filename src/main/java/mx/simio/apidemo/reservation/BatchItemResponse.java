@@ -0,0 +1,32 @@
+package mx.simio.apidemo.reservation;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+
+@Data
+@Builder
+public class BatchItemResponse {
+
+  private Integer index;
+  private Integer status;
+  private ReservationResponse reservation;
+  private Map<String, String> errors;
+
+  static BatchItemResponse created(int index, ReservationResponse reservation) {
+    return BatchItemResponse.builder()
+        .index(index)
+        .status(HttpStatus.OK.value())
+        .reservation(reservation)
+        .build();
+  }
+
+  static BatchItemResponse rejected(int index, HttpStatus status, Map<String, String> errors) {
+    return BatchItemResponse.builder()
+        .index(index)
+        .status(status.value())
+        .errors(errors)
+        .build();
+  }
+}
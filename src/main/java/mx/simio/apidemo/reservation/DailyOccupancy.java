@@ -0,0 +1,14 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DailyOccupancy {
+
+  private LocalDate date;
+  private Integer bookedRooms;
+  private Double occupancyRate;
+}
@@ -0,0 +1,132 @@
+package mx.simio.apidemo.reservation;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of dates kept as runs of consecutive days, each run its first epoch day and its
+ * length, so that a stay of any number of nights takes a few bytes instead of an object per night.
+ * Dates keep their order: a run only holds days that follow each other in the list, and a date
+ * that does not follow the previous one starts a new run. Adjacent runs are always merged, so
+ * equal lists have equal runs.
+ *
+ * <p>Dates are created when they are read with {@link #get(int)} or iterated. Code that works on
+ * whole runs, like conflict checks, reads them with {@link #runStart(int)} and
+ * {@link #runLength(int)} instead.
+ */
+public final class DateRuns extends AbstractList<LocalDate> implements RandomAccess, Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private final long[] starts;
+  private final int[] ends;
+
+  private DateRuns(long[] starts, int[] ends) {
+    this.starts = starts;
+    this.ends = ends;
+  }
+
+  /**
+   * Returns the given dates as runs, the same list if it already is one, or null for null.
+   *
+   * @throws NullPointerException if any of the dates is null
+   */
+  public static DateRuns of(List<LocalDate> dates) {
+    if (dates == null || dates instanceof DateRuns) {
+      return (DateRuns) dates;
+    }
+    Builder builder = new Builder();
+    for (LocalDate date : dates) {
+      builder.add(Objects.requireNonNull(date, "Dates must not be null").toEpochDay(), 1);
+    }
+    return builder.build();
+  }
+
+  public int runCount() {
+    return starts.length;
+  }
+
+  /**
+   * Returns the epoch day of the first date of a run.
+   */
+  public long runStart(int run) {
+    return starts[run];
+  }
+
+  public int runLength(int run) {
+    return ends[run] - (run == 0 ? 0 : ends[run - 1]);
+  }
+
+  @Override
+  public LocalDate get(int index) {
+    Objects.checkIndex(index, size());
+    int run = Arrays.binarySearch(ends, index);
+    run = run >= 0 ? run + 1 : -run - 1;
+    return LocalDate.ofEpochDay(starts[run] + index - (run == 0 ? 0 : ends[run - 1]));
+  }
+
+  @Override
+  public int size() {
+    return ends.length == 0 ? 0 : ends[ends.length - 1];
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other instanceof DateRuns runs) {
+      return Arrays.equals(starts, runs.starts) && Arrays.equals(ends, runs.ends);
+    }
+    return super.equals(other);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  /**
+   * Collects runs in order, merging a run into the previous one when it starts the day after the
+   * previous one ends.
+   */
+  public static final class Builder {
+
+    private long[] starts = new long[1];
+    private int[] ends = new int[1];
+    private int runs;
+
+    /**
+     * Appends {@code length} consecutive days starting at the given epoch day.
+     */
+    public Builder add(long firstDay, int length) {
+      if (length <= 0) {
+        throw new IllegalArgumentException("A run must hold at least one day");
+      }
+      int size = runs == 0 ? 0 : ends[runs - 1];
+      if (size + (long) length > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many dates");
+      }
+      if (runs > 0 && starts[runs - 1] + (size - (runs == 1 ? 0 : ends[runs - 2])) == firstDay) {
+        ends[runs - 1] = size + length;
+        return this;
+      }
+      if (runs == starts.length) {
+        starts = Arrays.copyOf(starts, runs * 2);
+        ends = Arrays.copyOf(ends, runs * 2);
+      }
+      starts[runs] = firstDay;
+      ends[runs] = size + length;
+      runs++;
+      return this;
+    }
+
+    public DateRuns build() {
+      return new DateRuns(Arrays.copyOf(starts, runs), Arrays.copyOf(ends, runs));
+    }
+  }
+}
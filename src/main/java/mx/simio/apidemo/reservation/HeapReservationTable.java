@@ -0,0 +1,37 @@
+package mx.simio.apidemo.reservation;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the reservations on the heap, in a {@link ConcurrentSkipListMap} whose iterators are
+ * weakly consistent.
+ */
+class HeapReservationTable implements ReservationTable {
+
+  private final ConcurrentNavigableMap<Integer, Reservation> reservations =
+      new ConcurrentSkipListMap<>();
+
+  @Override
+  public Reservation get(Integer id) {
+    return reservations.get(id);
+  }
+
+  @Override
+  public Reservation put(Reservation reservation) {
+    return reservations.put(reservation.getId(), reservation);
+  }
+
+  @Override
+  public Stream<Reservation> stream(Integer after) {
+    var remaining = after == null ? reservations : reservations.tailMap(after, false);
+    return remaining.values().stream();
+  }
+
+  @Override
+  public Collection<Reservation> values() {
+    return reservations.values();
+  }
+}
@@ -0,0 +1,108 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts the booked rooms of every night and the booked nights of every room, so that the
+ * occupancy of a date range is read in time proportional to its number of days, whatever the
+ * number of reservations.
+ *
+ * <p>Nights are counted in blocks of {@value #BLOCK_DAYS} consecutive days, each an
+ * {@link AtomicIntegerArray} indexed by epoch day and created when one of its nights is first
+ * booked. Counters are updated atomically, so reservations of different rooms can be counted at
+ * the same time. Like {@link ReservationDateIndex}, calls for the same room must not overlap,
+ * which {@link ReservationStore} guarantees with its room locks. A read made while a reservation
+ * is moved may count it on both its old and new nights, or on neither.
+ */
+class OccupancyCounters {
+
+  static final int BLOCK_DAYS = 512;
+
+  private final Map<Long, AtomicIntegerArray> nightBlocks = new ConcurrentHashMap<>();
+  private final Map<Integer, AtomicInteger> nightsByRoom = new ConcurrentHashMap<>();
+  private final AtomicInteger bookedRooms = new AtomicInteger();
+
+  void add(Reservation reservation) {
+    update(reservation, 1);
+  }
+
+  void remove(Reservation reservation) {
+    update(reservation, -1);
+  }
+
+  /**
+   * Returns the number of booked rooms of each night between two dates, both inclusive, starting
+   * with {@code from}.
+   */
+  int[] bookedRooms(LocalDate from, LocalDate to) {
+    long first = from.toEpochDay();
+    int[] counts = new int[Math.toIntExact(to.toEpochDay() - first + 1)];
+    AtomicIntegerArray block = null;
+    long blockIndex = Long.MIN_VALUE;
+    for (int i = 0; i < counts.length; i++) {
+      long night = first + i;
+      if (Math.floorDiv(night, BLOCK_DAYS) != blockIndex) {
+        blockIndex = Math.floorDiv(night, BLOCK_DAYS);
+        block = nightBlocks.get(blockIndex);
+      }
+      counts[i] = block == null ? 0 : block.get(Math.floorMod(night, BLOCK_DAYS));
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the number of rooms holding at least one booked night on any date.
+   */
+  int bookedRooms() {
+    return bookedRooms.get();
+  }
+
+  private void update(Reservation reservation, int delta) {
+    List<LocalDate> dates = reservation.getReservationDates();
+    if (dates == null || dates.isEmpty()) {
+      return;
+    }
+    DateRuns runs = distinctNights(DateRuns.of(dates));
+    for (int run = 0; run < runs.runCount(); run++) {
+      long end = runs.runStart(run) + runs.runLength(run);
+      AtomicIntegerArray block = null;
+      for (long night = runs.runStart(run); night < end; night++) {
+        if (block == null || Math.floorMod(night, BLOCK_DAYS) == 0) {
+          block = nightBlocks.computeIfAbsent(Math.floorDiv(night, BLOCK_DAYS),
+              index -> new AtomicIntegerArray(BLOCK_DAYS));
+        }
+        block.addAndGet(Math.floorMod(night, BLOCK_DAYS), delta);
+      }
+    }
+    if (reservation.getRoomNumber() == null) {
+      return;
+    }
+    int nights = nightsByRoom.computeIfAbsent(reservation.getRoomNumber(),
+        room -> new AtomicInteger()).addAndGet(delta * runs.size());
+    if (delta > 0 && nights == runs.size()) {
+      bookedRooms.incrementAndGet();
+    } else if (delta < 0 && nights == 0) {
+      bookedRooms.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the nights of a reservation with every date once, so that a date repeated in loaded
+   * data is not counted twice. Runs that already follow each other are returned as they are.
+   */
+  private static DateRuns distinctNights(DateRuns runs) {
+    for (int run = 1; run < runs.runCount(); run++) {
+      if (runs.runStart(run) < runs.runStart(run - 1) + runs.runLength(run - 1)) {
+        return DateRuns.of(new ArrayList<>(new TreeSet<>(runs)));
+      }
+    }
+    return runs;
+  }
+}
@@ -0,0 +1,306 @@
+package mx.simio.apidemo.reservation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the reservations outside the heap, encoded in direct {@link ByteBuffer} slabs, so that a
+ * large store adds almost nothing for the garbage collector to trace. A {@link Reservation} is
+ * only decoded when it is read, and becomes garbage as soon as the caller is done with it.
+ *
+ * <p>Each reservation is a record of its length, id, room number, flags telling which fields are
+ * null, client name in UTF-8 and the {@link DateRuns} of its dates, each run its first epoch day
+ * and its length. Records are appended to the current slab of {@value #DEFAULT_SLAB_BYTES} bytes
+ * by default and never change afterwards; a new slab is allocated when the current one is full.
+ * The id index is a directory of pages of {@value #PAGE_SIZE} slots, each slot a long holding the
+ * slab number in its upper half and the offset of the record in its lower half, or zero when
+ * there is no reservation with that id. Ids must therefore not be negative, and the index costs
+ * eight bytes per id up to the highest one.
+ *
+ * <p>Writes are serialized by a single lock: the record is copied to a slab before its slot is
+ * set, so readers, which never lock, see either the previous or the new record, both complete.
+ * Replaced records stay in their slab until the dead bytes reach both the live bytes and the size
+ * of a slab. The live records are then copied to new slabs, while holding the write lock, and the
+ * old slabs are dropped for the garbage collector to free. A reader that finds the slab of a slot
+ * gone reads the slot again.
+ */
+class OffHeapReservationTable implements ReservationTable {
+
+  static final int DEFAULT_SLAB_BYTES = 16 << 20;
+  static final int PAGE_SIZE = 1 << 12;
+
+  private static final int PAGE_BITS = Integer.numberOfTrailingZeros(PAGE_SIZE);
+  private static final int NAME_OFFSET = 17;
+  private static final byte NO_ROOM = 1;
+  private static final byte NO_NAME = 2;
+  private static final byte NO_DATES = 4;
+  private static final int RUN_BYTES = Long.BYTES + Integer.BYTES;
+
+  private final int slabBytes;
+  private final Map<Integer, ByteBuffer> slabs = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+  private volatile long allocatedBytes;
+  private ByteBuffer current;
+  private int currentSlab;
+  private int lastSlab;
+  private long liveBytes;
+  private long deadBytes;
+
+  OffHeapReservationTable() {
+    this(DEFAULT_SLAB_BYTES);
+  }
+
+  OffHeapReservationTable(int slabBytes) {
+    if (slabBytes < 64) {
+      throw new IllegalArgumentException("Slabs must hold at least 64 bytes");
+    }
+    this.slabBytes = slabBytes;
+  }
+
+  @Override
+  public Reservation get(Integer id) {
+    if (id == null || id < 0) {
+      return null;
+    }
+    while (true) {
+      long slot = slot(pages, id);
+      if (slot == 0) {
+        return null;
+      }
+      ByteBuffer slab = slabs.get(slabOf(slot));
+      if (slab != null) {
+        return decode(slab, offsetOf(slot));
+      }
+    }
+  }
+
+  @Override
+  public Reservation put(Reservation reservation) {
+    Integer id = Objects.requireNonNull(reservation.getId(), "Reservation id");
+    if (id < 0) {
+      throw new IllegalArgumentException("Off-heap reservation ids must not be negative");
+    }
+    byte[] name = reservation.getClientFullName() == null ? new byte[0]
+        : reservation.getClientFullName().getBytes(StandardCharsets.UTF_8);
+    DateRuns dates = DateRuns.of(reservation.getReservationDates());
+    int length = NAME_OFFSET + name.length + Integer.BYTES
+        + (dates == null ? 0 : dates.runCount() * RUN_BYTES);
+
+    lock.lock();
+    try {
+      long previousSlot = slot(pages, id);
+      Reservation previous = null;
+      if (previousSlot != 0) {
+        ByteBuffer slab = slabs.get(slabOf(previousSlot));
+        previous = decode(slab, offsetOf(previousSlot));
+        int previousLength = slab.getInt(offsetOf(previousSlot));
+        liveBytes -= previousLength;
+        deadBytes += previousLength;
+      }
+
+      int offset = allocate(length);
+      encode(current, offset, length, reservation, name, dates);
+      page(id).set(id & (PAGE_SIZE - 1), slot(currentSlab, offset));
+      liveBytes += length;
+      if (previous == null) {
+        size.incrementAndGet();
+      }
+
+      if (deadBytes >= liveBytes && deadBytes >= slabBytes) {
+        compact();
+      }
+      return previous;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Stream<Reservation> stream(Integer after) {
+    if (after != null && after == Integer.MAX_VALUE) {
+      return Stream.empty();
+    }
+    int first = after == null || after < 0 ? 0 : after + 1;
+    int firstPage = first >>> PAGE_BITS;
+    AtomicLongArray[] directory = pages;
+    return IntStream.range(firstPage, directory.length)
+        .filter(page -> directory[page] != null)
+        .boxed()
+        .flatMap(page -> IntStream.range(page == firstPage ? first & (PAGE_SIZE - 1) : 0,
+                PAGE_SIZE)
+            .mapToObj(index -> get((page << PAGE_BITS) | index))
+            .filter(Objects::nonNull));
+  }
+
+  @Override
+  public Collection<Reservation> values() {
+    return new AbstractCollection<>() {
+
+      @Override
+      public Iterator<Reservation> iterator() {
+        return OffHeapReservationTable.this.stream(null).iterator();
+      }
+
+      @Override
+      public int size() {
+        return size.get();
+      }
+    };
+  }
+
+  /**
+   * Returns the bytes of the slabs currently allocated, used by live, replaced or no records.
+   */
+  long allocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Reserves room for a record in the current slab, or in a new one if it does not fit.
+   *
+   * @return the offset of the record in the current slab
+   */
+  private int allocate(int length) {
+    if (current == null || current.capacity() - current.position() < length) {
+      current = ByteBuffer.allocateDirect(Math.max(slabBytes, length));
+      currentSlab = ++lastSlab;
+      slabs.put(currentSlab, current);
+      allocatedBytes += current.capacity();
+    }
+    int offset = current.position();
+    current.position(offset + length);
+    return offset;
+  }
+
+  /**
+   * Copies the live records to new slabs and drops the old ones.
+   */
+  private void compact() {
+    List<Integer> oldSlabs = new ArrayList<>(slabs.keySet());
+    current = null;
+    for (AtomicLongArray page : pages) {
+      if (page == null) {
+        continue;
+      }
+      for (int index = 0; index < PAGE_SIZE; index++) {
+        long slot = page.get(index);
+        if (slot == 0) {
+          continue;
+        }
+        ByteBuffer source = slabs.get(slabOf(slot));
+        int length = source.getInt(offsetOf(slot));
+        int offset = allocate(length);
+        current.put(offset, source, offsetOf(slot), length);
+        page.set(index, slot(currentSlab, offset));
+      }
+    }
+    for (Integer slab : oldSlabs) {
+      allocatedBytes -= slabs.remove(slab).capacity();
+    }
+    deadBytes = 0;
+  }
+
+  /**
+   * Returns the index page of an id, growing the directory if needed. The directory is copied
+   * rather than changed, so that readers see every page it holds.
+   */
+  private AtomicLongArray page(int id) {
+    int index = id >>> PAGE_BITS;
+    AtomicLongArray[] directory = pages;
+    if (index < directory.length && directory[index] != null) {
+      return directory[index];
+    }
+    AtomicLongArray[] grown = Arrays.copyOf(directory, index < directory.length
+        ? directory.length : Math.max(index + 1, directory.length * 2));
+    grown[index] = new AtomicLongArray(PAGE_SIZE);
+    pages = grown;
+    return grown[index];
+  }
+
+  private static void encode(ByteBuffer slab, int offset, int length, Reservation reservation,
+      byte[] name, DateRuns dates) {
+    byte flags = 0;
+    if (reservation.getRoomNumber() == null) {
+      flags |= NO_ROOM;
+    }
+    if (reservation.getClientFullName() == null) {
+      flags |= NO_NAME;
+    }
+    if (dates == null) {
+      flags |= NO_DATES;
+    }
+    slab.putInt(offset, length);
+    slab.putInt(offset + 4, reservation.getId());
+    slab.putInt(offset + 8, reservation.getRoomNumber() == null ? 0 : reservation.getRoomNumber());
+    slab.put(offset + 12, flags);
+    slab.putInt(offset + 13, name.length);
+    slab.put(offset + NAME_OFFSET, name);
+    int position = offset + NAME_OFFSET + name.length;
+    slab.putInt(position, dates == null ? 0 : dates.runCount());
+    position += Integer.BYTES;
+    for (int run = 0; dates != null && run < dates.runCount(); run++) {
+      slab.putLong(position, dates.runStart(run));
+      slab.putInt(position + Long.BYTES, dates.runLength(run));
+      position += RUN_BYTES;
+    }
+  }
+
+  private static Reservation decode(ByteBuffer slab, int offset) {
+    byte flags = slab.get(offset + 12);
+    byte[] name = new byte[slab.getInt(offset + 13)];
+    slab.get(offset + NAME_OFFSET, name);
+    int position = offset + NAME_OFFSET + name.length;
+    int count = slab.getInt(position);
+    position += Integer.BYTES;
+    DateRuns dates = null;
+    if ((flags & NO_DATES) == 0) {
+      DateRuns.Builder runs = new DateRuns.Builder();
+      for (int run = 0; run < count; run++) {
+        runs.add(slab.getLong(position), slab.getInt(position + Long.BYTES));
+        position += RUN_BYTES;
+      }
+      dates = runs.build();
+    }
+    return new Reservation(slab.getInt(offset + 4),
+        (flags & NO_NAME) == 0 ? new String(name, StandardCharsets.UTF_8) : null,
+        (flags & NO_ROOM) == 0 ? slab.getInt(offset + 8) : null,
+        dates);
+  }
+
+  private static long slot(AtomicLongArray[] directory, int id) {
+    int index = id >>> PAGE_BITS;
+    if (index >= directory.length || directory[index] == null) {
+      return 0;
+    }
+    return directory[index].get(id & (PAGE_SIZE - 1));
+  }
+
+  private static long slot(int slab, int offset) {
+    return ((long) slab << 32) | offset;
+  }
+
+  private static int slabOf(long slot) {
+    return (int) (slot >>> 32);
+  }
+
+  private static int offsetOf(long slot) {
+    return (int) slot;
+  }
+}
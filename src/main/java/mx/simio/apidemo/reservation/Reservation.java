@@ -4,7 +4,6 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Builder;
 import lombok.Data;
 
@@ -16,27 +15,32 @@ public class Reservation implements Serializable {
   private Integer roomNumber;
   private List<LocalDate> reservationDates;
 
-  private static final AtomicInteger count = new AtomicInteger(0);
-
   @Builder
-  public Reservation(String clientFullName, Integer roomNumber, List<LocalDate> reservationDates) {
-    this.id = count.incrementAndGet();
-    this.clientFullName = clientFullName;
-    this.roomNumber = roomNumber;
-    this.reservationDates = reservationDates;
-  }
-
   public Reservation(Integer id, String clientFullName, Integer roomNumber,
       List<LocalDate> reservationDates) {
     this.id = id;
     this.clientFullName = clientFullName;
     this.roomNumber = roomNumber;
-    this.reservationDates = reservationDates;
+    this.reservationDates = DateRuns.of(reservationDates);
   }
 
-
   public Reservation() {
-    this.id = count.incrementAndGet();
+  }
+
+  /**
+   * Sets the dates, kept as {@link DateRuns} whatever list is given.
+   */
+  public void setReservationDates(List<LocalDate> reservationDates) {
+    this.reservationDates = DateRuns.of(reservationDates);
+  }
+
+  /**
+   * Converts the dates of reservations serialized before they were kept as {@link DateRuns}.
+   */
+  @Serial
+  private Object readResolve() {
+    reservationDates = DateRuns.of(reservationDates);
+    return this;
   }
 
   @Serial
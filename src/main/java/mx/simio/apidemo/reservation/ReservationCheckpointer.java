@@ -0,0 +1,208 @@
+package mx.simio.apidemo.reservation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.file.FileOperations;
+
+/**
+ * Persists reservations on a background thread, so that requests only record which reservations
+ * they touched and never wait for the disk.
+ *
+ * <p>Every checkpoint writes the reservations changed since the previous one with a single
+ * {@link FileOperations#appendAllToFile} call, and every {@code fullSnapshotEvery} checkpoints it
+ * writes a full snapshot instead. Backends that cannot append get a full snapshot whenever
+ * something changed. A reservation is marked dirty after it is stored, and it is unmarked before
+ * it is read back, so a change made while a checkpoint runs is picked up by the next one at the
+ * latest. If a checkpoint fails, its reservations stay dirty.
+ */
+@Slf4j
+class ReservationCheckpointer {
+
+  private final ReservationStore store;
+  private final FileOperations fileOperations;
+  private final Duration interval;
+  private final int fullSnapshotEvery;
+  private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      runnable -> {
+        Thread thread = new Thread(runnable, "reservation-checkpointer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final AtomicLong checkpoints = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong lastDurationNanos = new AtomicLong();
+  private final AtomicLong totalDurationNanos = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  private int checkpointsSinceFullSnapshot;
+  private boolean changedSinceFullSnapshot;
+
+  ReservationCheckpointer(ReservationStore store, FileOperations fileOperations, Duration interval,
+      int fullSnapshotEvery) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("The checkpoint interval must be positive");
+    }
+    if (fullSnapshotEvery < 1) {
+      throw new IllegalArgumentException("A full snapshot must be taken at least every checkpoint");
+    }
+    this.store = store;
+    this.fileOperations = fileOperations;
+    this.interval = interval;
+    this.fullSnapshotEvery = fullSnapshotEvery;
+  }
+
+  void start() {
+    long millis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::checkpointQuietly, millis, millis,
+        TimeUnit.MILLISECONDS);
+    log.info("Checkpointing reservations every {}", interval);
+  }
+
+  /**
+   * Stops scheduling checkpoints and waits for the one in progress, if any, to finish.
+   */
+  void stop() {
+    scheduler.shutdown();
+    try {
+      if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.warn("Timed out waiting for the last checkpoint to finish");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void markDirty(Integer id) {
+    dirty.add(id);
+  }
+
+  /**
+   * Writes the reservations changed since the previous checkpoint, or a full snapshot when one is
+   * due. Only ever called from the scheduler thread, or from tests.
+   */
+  void checkpoint() {
+    boolean changed = !dirty.isEmpty();
+    boolean full = (changed && !fileOperations.supportsAppend())
+        || ((changed || changedSinceFullSnapshot)
+        && checkpointsSinceFullSnapshot + 1 >= fullSnapshotEvery);
+    if (!changed && !full) {
+      return;
+    }
+
+    long start = System.nanoTime();
+    long bytesBefore = fileOperations.getBytesWritten();
+    List<Integer> ids = drainDirty();
+    try {
+      if (full) {
+        fileOperations.writeToFile(new HashSet<>(store.values()));
+        checkpointsSinceFullSnapshot = 0;
+        changedSinceFullSnapshot = false;
+      } else {
+        List<Reservation> reservations = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+          Reservation reservation = store.get(id);
+          if (reservation != null) {
+            reservations.add(reservation);
+          }
+        }
+        fileOperations.appendAllToFile(reservations);
+        checkpointsSinceFullSnapshot++;
+        changedSinceFullSnapshot = true;
+      }
+    } catch (RuntimeException e) {
+      dirty.addAll(ids);
+      failures.incrementAndGet();
+      throw e;
+    }
+
+    long duration = System.nanoTime() - start;
+    checkpoints.incrementAndGet();
+    lastDurationNanos.set(duration);
+    totalDurationNanos.addAndGet(duration);
+    bytesWritten.addAndGet(fileOperations.getBytesWritten() - bytesBefore);
+    log.debug("Checkpointed {} reservations{} in {} ms", ids.size(),
+        full ? " with a full snapshot" : "", TimeUnit.NANOSECONDS.toMillis(duration));
+  }
+
+  /**
+   * Exposes the checkpoint statistics as meters. They read the counters kept anyway, so
+   * checkpoints do no extra work for them.
+   */
+  void bindTo(MeterRegistry registry) {
+    FunctionTimer.builder("reservation.checkpoint.duration", this,
+            ReservationCheckpointer::getCheckpointCount,
+            checkpointer -> checkpointer.totalDurationNanos.get(), TimeUnit.NANOSECONDS)
+        .description("Time spent writing checkpoints")
+        .register(registry);
+    FunctionCounter.builder("reservation.checkpoint.failures", this,
+            ReservationCheckpointer::getFailureCount)
+        .description("Checkpoints that could not be written")
+        .register(registry);
+    FunctionCounter.builder("reservation.checkpoint.bytes", this,
+            ReservationCheckpointer::getBytesWritten)
+        .description("Bytes written by checkpoints")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("reservation.checkpoint.pending", this,
+            ReservationCheckpointer::getPendingCount)
+        .description("Changed reservations waiting for the next checkpoint")
+        .register(registry);
+  }
+
+  long getCheckpointCount() {
+    return checkpoints.get();
+  }
+
+  long getFailureCount() {
+    return failures.get();
+  }
+
+  Duration getLastDuration() {
+    return Duration.ofNanos(lastDurationNanos.get());
+  }
+
+  Duration getTotalDuration() {
+    return Duration.ofNanos(totalDurationNanos.get());
+  }
+
+  long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  int getPendingCount() {
+    return dirty.size();
+  }
+
+  private List<Integer> drainDirty() {
+    List<Integer> ids = new ArrayList<>();
+    for (Iterator<Integer> iterator = dirty.iterator(); iterator.hasNext(); ) {
+      ids.add(iterator.next());
+      iterator.remove();
+    }
+    return ids;
+  }
+
+  private void checkpointQuietly() {
+    try {
+      checkpoint();
+    } catch (RuntimeException e) {
+      log.error("Error checkpointing reservations", e);
+    }
+  }
+}
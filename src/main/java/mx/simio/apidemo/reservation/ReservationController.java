@@ -1,7 +1,20 @@
 package mx.simio.apidemo.reservation;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import mx.simio.apidemo.exception.BadRequestException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -9,7 +22,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,6 +33,9 @@ import org.springframework.web.bind.annotation.RestController;
 public class ReservationController {
 
   private final ReservationService reservationService;
+  private final ObjectMapper objectMapper;
+  private final ReservationListCache reservationListCache;
+  private final AsyncReservationService asyncReservationService;
 
   @PostMapping
   public ResponseEntity<ReservationResponse> createReservation(@RequestBody ReservationRequest request) {
@@ -24,15 +43,116 @@ public class ReservationController {
     return ResponseEntity.ok(createdReservation);
   }
 
+  @PostMapping("/async")
+  public CompletableFuture<ResponseEntity<ReservationResponse>> createReservationAsync(
+      @RequestBody ReservationRequest request) {
+    return asyncReservationService.createReservation(request).thenApply(ResponseEntity::ok);
+  }
+
+  @PostMapping("/batch")
+  public ResponseEntity<List<BatchItemResponse>> createReservations(
+      @RequestBody List<ReservationRequest> requests) {
+    List<BatchItemResponse> results = reservationService.createReservations(requests);
+    return ResponseEntity.ok(results);
+  }
+
   @GetMapping
-  public ResponseEntity<List<ReservationResponse>> getAllReservations() {
-    List<ReservationResponse> reservations = reservationService.getAllReservations();
+  public ResponseEntity<byte[]> getAllReservations(WebRequest webRequest) {
+    return reservationListCache.timed(() -> {
+      if (webRequest.checkNotModified(reservationListCache.currentETag())) {
+        return null;
+      }
+      ReservationListCache.Entry reservations = reservationListCache.get();
+      return ResponseEntity.ok()
+          .eTag(reservations.getETag())
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(reservations.getJson());
+    });
+  }
+
+  @GetMapping(params = "limit")
+  public ResponseEntity<ReservationPage> getReservationPage(@RequestParam int limit,
+      @RequestParam(required = false) Integer after) {
+    ReservationPage page = reservationService.getReservationPage(limit, after);
+    return ResponseEntity.ok(page);
+  }
+
+  @GetMapping(params = {"from", "to"})
+  public ResponseEntity<List<ReservationResponse>> findReservations(
+      @RequestParam(required = false) Integer room,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+    List<ReservationResponse> reservations = reservationService.findReservations(room, from, to);
+    return ResponseEntity.ok(reservations);
+  }
+
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportReservations() {
+    ObjectWriter writer = objectMapper.writerFor(ReservationResponse.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    StreamingResponseBody body = outputStream -> {
+      try (Stream<ReservationResponse> reservations = reservationService.streamReservations();
+          JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        Iterator<ReservationResponse> iterator = reservations.iterator();
+        while (iterator.hasNext()) {
+          writer.writeValue(generator, iterator.next());
+          if (!iterator.hasNext()) {
+            generator.writeRaw('\n');
+          }
+        }
+      }
+    };
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
+  }
+
+  @GetMapping("/availability")
+  public ResponseEntity<AvailabilityResponse> getAvailability(@RequestParam Integer room,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+    AvailabilityResponse availability = reservationService.getAvailability(room, from, to);
+    return ResponseEntity.ok(availability);
+  }
+
+  @GetMapping("/occupancy")
+  public ResponseEntity<OccupancyResponse> getOccupancy(
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+    OccupancyResponse occupancy = reservationService.getOccupancy(from, to);
+    return ResponseEntity.ok(occupancy);
+  }
+
+  @GetMapping("/search")
+  public ResponseEntity<List<ReservationResponse>> searchReservations(@RequestParam String name,
+      @RequestParam(defaultValue = "prefix") String match,
+      @RequestParam(defaultValue = "50") int limit) {
+    if (!match.equals("prefix") && !match.equals("substring")) {
+      throw new BadRequestException("The match must be 'prefix' or 'substring'");
+    }
+    List<ReservationResponse> reservations = reservationService.searchReservations(name,
+        match.equals("substring"), limit);
     return ResponseEntity.ok(reservations);
   }
 
+  @GetMapping("/{id}")
+  public ResponseEntity<ReservationResponse> getReservation(@PathVariable Integer id) {
+    ReservationResponse reservation = reservationService.getReservation(id);
+    return ResponseEntity.ok(reservation);
+  }
+
   @PutMapping("/{id}")
   public ResponseEntity<ReservationResponse> updateReservation(@PathVariable Integer id, @RequestBody ReservationRequest request) {
     ReservationResponse updatedReservation = reservationService.updateReservation(id, request);
     return ResponseEntity.ok(updatedReservation);
   }
+
+  @PutMapping("/{id}/async")
+  public CompletableFuture<ResponseEntity<ReservationResponse>> updateReservationAsync(
+      @PathVariable Integer id, @RequestBody ReservationRequest request) {
+    return asyncReservationService.updateReservation(id, request).thenApply(ResponseEntity::ok);
+  }
 }
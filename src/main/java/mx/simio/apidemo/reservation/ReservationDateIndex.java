@@ -0,0 +1,142 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the reservations that hold a night within a date range, by reading only the nights in the
+ * range instead of scanning every reservation.
+ *
+ * <p>Two views are kept. For each room, an ordered map from night to the reservation holding it,
+ * which answers a room query by walking just the booked nights of the range. For each night, the
+ * ids of all the reservations holding it in any room. A reservation without a room is only kept in
+ * the second view, and one without dates is not indexed at all.
+ *
+ * <p>Persisted data may hold overlapping reservations of the same room, written before conflicts
+ * were checked. The room view then keeps the other holders of a shared night in a separate map,
+ * created only for the rooms where that happens, and promotes one of them when the night's main
+ * holder is removed.
+ *
+ * <p>Like {@link RoomAvailabilityIndex}, calls for the same room must not overlap, which
+ * {@link ReservationStore} guarantees with its room locks. The night view can be read at any time;
+ * it may briefly list a reservation that no longer holds a night, so callers check the dates of
+ * what they get back.
+ */
+class ReservationDateIndex {
+
+  private final Map<Integer, NavigableMap<Long, Integer>> nightsByRoom =
+      new ConcurrentHashMap<>();
+  private final Map<Integer, NavigableMap<Long, Set<Integer>>> sharedNightsByRoom =
+      new ConcurrentHashMap<>();
+  private final Map<Long, Set<Integer>> reservationsByNight = new ConcurrentHashMap<>();
+
+  void add(Reservation reservation) {
+    List<LocalDate> dates = reservation.getReservationDates();
+    if (dates == null) {
+      return;
+    }
+    Integer id = reservation.getId();
+    NavigableMap<Long, Integer> nights = reservation.getRoomNumber() == null ? null
+        : nightsByRoom.computeIfAbsent(reservation.getRoomNumber(), room -> new TreeMap<>());
+    for (LocalDate date : dates) {
+      long night = date.toEpochDay();
+      if (nights != null) {
+        Integer holder = nights.put(night, id);
+        if (holder != null && !holder.equals(id)) {
+          sharedNightsByRoom
+              .computeIfAbsent(reservation.getRoomNumber(), room -> new TreeMap<>())
+              .computeIfAbsent(night, day -> new LinkedHashSet<>())
+              .add(holder);
+        }
+      }
+      reservationsByNight.computeIfAbsent(night, day -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+  }
+
+  void remove(Reservation reservation) {
+    List<LocalDate> dates = reservation.getReservationDates();
+    if (dates == null) {
+      return;
+    }
+    Integer id = reservation.getId();
+    NavigableMap<Long, Integer> nights = reservation.getRoomNumber() == null ? null
+        : nightsByRoom.get(reservation.getRoomNumber());
+    for (LocalDate date : dates) {
+      long night = date.toEpochDay();
+      if (nights != null) {
+        removeFromRoom(reservation.getRoomNumber(), nights, night, id);
+      }
+      Set<Integer> ids = reservationsByNight.get(night);
+      if (ids != null) {
+        ids.remove(id);
+      }
+    }
+  }
+
+  /**
+   * Lists the ids of the reservations of a room holding a night between two dates, both
+   * inclusive, in the order of their first night in the range. Must be called while holding the
+   * room's lock.
+   */
+  Set<Integer> findByRoom(Integer roomNumber, LocalDate from, LocalDate to) {
+    Set<Integer> ids = new LinkedHashSet<>();
+    NavigableMap<Long, Integer> nights = nightsByRoom.get(roomNumber);
+    if (nights != null) {
+      ids.addAll(nights.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values());
+    }
+    NavigableMap<Long, Set<Integer>> shared = sharedNightsByRoom.get(roomNumber);
+    if (shared != null) {
+      shared.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values().forEach(ids::addAll);
+    }
+    return ids;
+  }
+
+  /**
+   * Removes a reservation from a night of its room, handing the night to another holder if it
+   * is shared.
+   */
+  private void removeFromRoom(Integer roomNumber, NavigableMap<Long, Integer> nights, long night,
+      Integer id) {
+    NavigableMap<Long, Set<Integer>> shared = sharedNightsByRoom.get(roomNumber);
+    Set<Integer> holders = shared == null ? null : shared.get(night);
+    if (holders == null) {
+      nights.remove(night, id);
+      return;
+    }
+    if (nights.remove(night, id)) {
+      Integer next = holders.iterator().next();
+      holders.remove(next);
+      nights.put(night, next);
+    } else {
+      holders.remove(id);
+    }
+    if (holders.isEmpty()) {
+      shared.remove(night);
+      if (shared.isEmpty()) {
+        sharedNightsByRoom.remove(roomNumber);
+      }
+    }
+  }
+
+  /**
+   * Lists the ids of the reservations of any room holding a night between two dates, both
+   * inclusive. The cost grows with the number of nights in the range and the number of
+   * reservations found, not with the number of reservations stored.
+   */
+  Set<Integer> findByDates(LocalDate from, LocalDate to) {
+    Set<Integer> ids = new LinkedHashSet<>();
+    for (long night = from.toEpochDay(); night <= to.toEpochDay(); night++) {
+      Set<Integer> reservations = reservationsByNight.get(night);
+      if (reservations != null) {
+        ids.addAll(reservations);
+      }
+    }
+    return ids;
+  }
+}
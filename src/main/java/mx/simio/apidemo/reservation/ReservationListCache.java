@@ -0,0 +1,128 @@
+package mx.simio.apidemo.reservation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.ServiceException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the JSON of the full reservation list for the current
+ * {@linkplain ReservationService#getVersion() version} of the reservations, so that repeated list
+ * requests with no change in between are answered with the same bytes instead of mapping and
+ * serializing every reservation again.
+ *
+ * <p>The list is only rebuilt by the first request after a change; requests arriving while it is
+ * rebuilt wait for it rather than rebuilding it too. Each version also has an entity tag, which
+ * includes a value picked at startup so that tags from before a restart never match.
+ *
+ * <p>The list operation of {@code reservation.operation.duration} is recorded here, around
+ * {@link #timed(Supplier)}, so that it covers every list request as the client sees it: answered
+ * as not modified, from the cached bytes or by rebuilding them.
+ */
+@Slf4j
+@Component
+public class ReservationListCache implements MeterBinder {
+
+  private final ReservationService reservationService;
+  private final ObjectMapper objectMapper;
+  private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile Entry entry;
+  private volatile Timer listTimer;
+
+  public ReservationListCache(ReservationService reservationService, ObjectMapper objectMapper) {
+    this.reservationService = reservationService;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    listTimer = ReservationService.operationTimer("list", registry);
+  }
+
+  /**
+   * Runs a request for the reservation list and records its time as the list operation, whatever
+   * way it is answered. Until {@link #bindTo(MeterRegistry)} is called, nothing is recorded.
+   */
+  public <T> T timed(Supplier<T> request) {
+    long start = System.nanoTime();
+    try {
+      return request.get();
+    } finally {
+      ReservationService.record(listTimer, start);
+    }
+  }
+
+  /**
+   * Returns the entity tag of the reservation list as it is now, without reading it.
+   */
+  public String currentETag() {
+    return eTag(reservationService.getVersion());
+  }
+
+  /**
+   * Returns the JSON of the reservation list and its entity tag, rebuilding them if a reservation
+   * changed since they were built.
+   *
+   * @throws ServiceException if the list cannot be serialized
+   */
+  public Entry get() {
+    Entry current = entry;
+    if (current != null && current.version == reservationService.getVersion()) {
+      return current;
+    }
+
+    lock.lock();
+    try {
+      long version = reservationService.getVersion();
+      current = entry;
+      if (current != null && current.version == version) {
+        return current;
+      }
+      current = new Entry(version, eTag(version),
+          objectMapper.writeValueAsBytes(reservationService.getAllReservations()));
+      entry = current;
+      return current;
+    } catch (JsonProcessingException e) {
+      log.error("Error serializing reservations", e);
+      throw new ServiceException("Error retrieving reservations");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private String eTag(long version) {
+    return "\"" + instance + "-" + version + "\"";
+  }
+
+  /**
+   * The serialized reservation list of one version.
+   */
+  public static final class Entry {
+
+    private final long version;
+    private final String eTag;
+    private final byte[] json;
+
+    private Entry(long version, String eTag, byte[] json) {
+      this.version = version;
+      this.eTag = eTag;
+      this.json = json;
+    }
+
+    public String getETag() {
+      return eTag;
+    }
+
+    public byte[] getJson() {
+      return json;
+    }
+  }
+}
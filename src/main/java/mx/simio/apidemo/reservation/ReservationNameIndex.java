@@ -0,0 +1,260 @@
+package mx.simio.apidemo.reservation;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds reservations by the words of their client name, ignoring case and accents.
+ *
+ * <p>Names are split into normalized words, and each distinct word keeps the ids of the
+ * reservations using it in ascending order. Since guests share first and last names, the index
+ * holds a few entries per reservation and a vocabulary much smaller than the number of
+ * reservations. Words matching a prefix are found in the sorted vocabulary, and words containing
+ * a substring through the trigrams of the vocabulary, or by scanning the vocabulary for substrings
+ * shorter than a trigram. Candidates are then produced in id order by walking the ids of the
+ * least used query word and probing the others, so a caller that only wants the first few
+ * matches stops early instead of collecting every reservation of a common name.
+ *
+ * <p>Words never leave the vocabulary, only their ids do. Adding and removing can happen from
+ * several threads at once, and lookups can run at the same time; they may briefly return a
+ * reservation that no longer matches, so callers check the names of what they get back with
+ * {@link #matches}.
+ */
+class ReservationNameIndex {
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final int GRAM = 3;
+
+  private final Map<String, Postings> postingsByWord = new ConcurrentHashMap<>();
+  private final NavigableSet<String> vocabulary = new ConcurrentSkipListSet<>();
+  private final Map<String, Set<String>> wordsByTrigram = new ConcurrentHashMap<>();
+
+  void add(Reservation reservation) {
+    Integer id = reservation.getId();
+    for (String word : words(reservation.getClientFullName())) {
+      postingsByWord.compute(word, (key, postings) -> {
+        Postings updated = postings == null ? new Postings() : postings;
+        updated.add(id);
+        return updated;
+      });
+      if (vocabulary.add(word)) {
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+          wordsByTrigram.computeIfAbsent(word.substring(i, i + GRAM),
+              trigram -> ConcurrentHashMap.newKeySet()).add(word);
+        }
+      }
+    }
+  }
+
+  void remove(Reservation reservation) {
+    Integer id = reservation.getId();
+    for (String word : words(reservation.getClientFullName())) {
+      postingsByWord.computeIfPresent(word, (key, postings) -> {
+        postings.remove(id);
+        return postings.size() == 0 ? null : postings;
+      });
+    }
+  }
+
+  /**
+   * Streams, in ascending order and without repeats, the ids of the reservations that may match
+   * the query: every query word is the prefix of, or with {@code substring} is contained in, some
+   * word of their name. The stream is lazy, so limiting it limits the work done.
+   */
+  Stream<Integer> candidates(String query, boolean substring) {
+    List<List<Postings>> matches = new ArrayList<>();
+    for (String queryWord : words(query)) {
+      Collection<String> matchingWords = substring
+          ? wordsContaining(queryWord)
+          : vocabulary.subSet(queryWord, true, queryWord + Character.MAX_VALUE, false);
+      List<Postings> postings = new ArrayList<>();
+      for (String word : matchingWords) {
+        Postings wordPostings = postingsByWord.get(word);
+        if (wordPostings != null) {
+          postings.add(wordPostings);
+        }
+      }
+      if (postings.isEmpty()) {
+        return Stream.empty();
+      }
+      matches.add(postings);
+    }
+    if (matches.isEmpty()) {
+      return Stream.empty();
+    }
+
+    matches.sort(Comparator.comparingLong(ReservationNameIndex::size));
+    List<List<Postings>> others = matches.subList(1, matches.size());
+    Iterator<Integer> ids = new MergingIterator(matches.get(0));
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(ids,
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+        .filter(id -> others.stream().allMatch(postings -> contains(postings, id)));
+  }
+
+  /**
+   * Tells whether a reservation, as it is now, matches the query: with {@code substring}, its
+   * normalized name contains the normalized query, otherwise every query word is the prefix of
+   * one of its words.
+   */
+  static boolean matches(Reservation reservation, String query, boolean substring) {
+    List<String> nameWords = words(reservation.getClientFullName());
+    if (substring) {
+      return String.join(" ", nameWords).contains(String.join(" ", words(query)));
+    }
+    return words(query).stream()
+        .allMatch(queryWord -> nameWords.stream().anyMatch(word -> word.startsWith(queryWord)));
+  }
+
+  /**
+   * Splits a name into lowercase words with accents removed, so that names differing only in case
+   * or accents give the same words.
+   */
+  static List<String> words(String name) {
+    if (name == null) {
+      return List.of();
+    }
+    String normalized = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD))
+        .replaceAll("")
+        .toLowerCase(Locale.ROOT);
+    List<String> words = new ArrayList<>();
+    for (String word : SEPARATORS.split(normalized)) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+
+  private Collection<String> wordsContaining(String queryWord) {
+    if (queryWord.length() < GRAM) {
+      return vocabulary.stream().filter(word -> word.contains(queryWord)).toList();
+    }
+
+    Set<String> smallest = null;
+    for (int i = 0; i + GRAM <= queryWord.length(); i++) {
+      Set<String> words = wordsByTrigram.get(queryWord.substring(i, i + GRAM));
+      if (words == null) {
+        return List.of();
+      }
+      if (smallest == null || words.size() < smallest.size()) {
+        smallest = words;
+      }
+    }
+    return smallest.stream().filter(word -> word.contains(queryWord)).toList();
+  }
+
+  private static long size(List<Postings> postings) {
+    long size = 0;
+    for (Postings wordPostings : postings) {
+      size += wordPostings.size();
+    }
+    return size;
+  }
+
+  private static boolean contains(List<Postings> postings, Integer id) {
+    for (Postings wordPostings : postings) {
+      if (wordPostings.ids.contains(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Ids of the reservations using a word, kept sorted, with a count since the size of a
+   * {@link ConcurrentSkipListSet} takes a full traversal. Changed only inside the map's compute
+   * calls for the word.
+   */
+  private static final class Postings {
+
+    private final ConcurrentSkipListSet<Integer> ids = new ConcurrentSkipListSet<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    void add(Integer id) {
+      if (ids.add(id)) {
+        size.incrementAndGet();
+      }
+    }
+
+    void remove(Integer id) {
+      if (ids.remove(id)) {
+        size.decrementAndGet();
+      }
+    }
+
+    int size() {
+      return size.get();
+    }
+  }
+
+  /**
+   * Merges the ascending ids of several words into one ascending sequence without repeats.
+   */
+  private static final class MergingIterator implements Iterator<Integer> {
+
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(
+        Comparator.comparing(head -> head.id));
+    private Integer last;
+
+    MergingIterator(List<Postings> postings) {
+      for (Postings wordPostings : postings) {
+        advance(new Head(wordPostings.ids.iterator()));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!heads.isEmpty() && heads.peek().id.equals(last)) {
+        advance(heads.poll());
+      }
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public Integer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Head head = heads.poll();
+      last = head.id;
+      advance(head);
+      return last;
+    }
+
+    private void advance(Head head) {
+      if (head.iterator.hasNext()) {
+        head.id = head.iterator.next();
+        heads.add(head);
+      }
+    }
+
+    private static final class Head {
+
+      private final Iterator<Integer> iterator;
+      private Integer id;
+
+      Head(Iterator<Integer> iterator) {
+        this.iterator = iterator;
+      }
+    }
+  }
+}
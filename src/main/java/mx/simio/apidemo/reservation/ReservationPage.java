@@ -0,0 +1,13 @@
+package mx.simio.apidemo.reservation;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReservationPage {
+
+  private List<ReservationResponse> reservations;
+  private Integer nextCursor;
+}
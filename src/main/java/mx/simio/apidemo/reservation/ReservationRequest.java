@@ -24,5 +24,6 @@ public class ReservationRequest {
 
   @NotNull(message = "Reservation dates cannot be null")
   @Size(min = 1, message = "At least one reservation date should be provided")
-  private List<LocalDate> reservationDates;
+  private List<@NotNull(message = "Reservation dates cannot contain null") LocalDate>
+      reservationDates;
 }
@@ -1,39 +1,185 @@
 package mx.simio.apidemo.reservation;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import java.util.Comparator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import lombok.RequiredArgsConstructor;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import mx.simio.apidemo.exception.BadRequestException;
+import mx.simio.apidemo.exception.ConflictException;
 import mx.simio.apidemo.exception.NotFoundException;
 import mx.simio.apidemo.exception.ServiceException;
 import mx.simio.apidemo.file.FileOperations;
+import mx.simio.apidemo.file.IdAllocator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class ReservationService {
+public class ReservationService implements MeterBinder {
+
+  private static final long MAX_AVAILABILITY_DAYS = 366;
+  private static final long MAX_QUERY_DAYS = 366;
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final LocalDate FIRST_BOOKABLE_DATE = LocalDate.EPOCH;
+  private static final int MAX_YEARS_AHEAD = 5;
 
   private final FileOperations fileOperations;
-  private final Set<Reservation> reservations = new HashSet<>();
+  private final IdAllocator idAllocator;
+  private final Validator validator;
+  private final ReservationStore store;
+  private final ReservationCheckpointer checkpointer;
+  private final boolean backgroundLoad;
+  private volatile CompletableFuture<Void> loading = CompletableFuture.completedFuture(null);
+  private volatile Timer createTimer;
+  private volatile Timer updateTimer;
+
+  public ReservationService(FileOperations fileOperations, Validator validator) {
+    this(fileOperations, IdAllocator.inMemory(), validator, Duration.ZERO, 1, false);
+  }
+
+  public ReservationService(FileOperations fileOperations, IdAllocator idAllocator,
+      Validator validator, Duration checkpointInterval, int fullSnapshotEvery,
+      boolean backgroundLoad) {
+    this(fileOperations, idAllocator, validator, checkpointInterval, fullSnapshotEvery,
+        backgroundLoad, false);
+  }
+
+  /**
+   * Creates the service. With a positive checkpoint interval, changes are no longer persisted on
+   * the request thread but by a {@link ReservationCheckpointer} running in the background.
+   *
+   * @param checkpointInterval how often changes are persisted, zero to persist every change as
+   *                           it is made
+   * @param fullSnapshotEvery  every how many checkpoints a full snapshot is written
+   * @param backgroundLoad     whether startup should go on while the reservations are loaded
+   * @param offHeap            whether the reservations are kept off the heap, in an
+   *                           {@link OffHeapReservationTable}
+   */
+  @Autowired
+  public ReservationService(FileOperations fileOperations, IdAllocator idAllocator,
+      Validator validator,
+      @Value("${reservation.checkpoint.interval:0s}") Duration checkpointInterval,
+      @Value("${reservation.checkpoint.full-snapshot-every:10}") int fullSnapshotEvery,
+      @Value("${reservation.load.background:false}") boolean backgroundLoad,
+      @Value("${reservation.store.off-heap:false}") boolean offHeap) {
+    this.fileOperations = fileOperations;
+    this.idAllocator = idAllocator;
+    this.validator = validator;
+    this.store = new ReservationStore(ReservationStore.DEFAULT_STRIPES,
+        offHeap ? new OffHeapReservationTable() : new HeapReservationTable());
+    this.checkpointer = checkpointInterval.isZero() ? null
+        : new ReservationCheckpointer(store, fileOperations, checkpointInterval,
+            fullSnapshotEvery);
+    this.backgroundLoad = backgroundLoad;
+  }
+
+  /**
+   * Registers the latency histograms of creating and updating reservations, the size of the
+   * reservation store and, with checkpointing enabled, the checkpointer statistics. Until this is
+   * called, operations are not timed. Listing is timed by {@link ReservationListCache}, which
+   * serves the list.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    createTimer = operationTimer("create", registry);
+    updateTimer = operationTimer("update", registry);
+    Gauge.builder("reservation.store.size", store, ReservationStore::size)
+        .description("Number of stored reservations")
+        .register(registry);
+    if (checkpointer != null) {
+      checkpointer.bindTo(registry);
+    }
+  }
 
   /**
    * This method is invoked at the time of the bean creation. It loads data from a file into the
-   * reservations set.
+   * reservation store, keyed by reservation id, rebuilds the room availability index and moves the
+   * id sequence past the loaded ids. Chunks of the file are decoded and stored in parallel.
+   *
+   * <p>With background loading, this method returns right away and the data is loaded on another
+   * thread. Reads are served from whatever has been loaded so far, while writes wait until
+   * loading has finished, so they never miss a conflicting reservation.
    *
    * @throws ServiceException if an error occurs during reading the data from the file
    */
   @PostConstruct
   public void loadData() {
+    if (!backgroundLoad) {
+      load();
+      return;
+    }
+
+    CompletableFuture<Void> backgroundLoading = new CompletableFuture<>();
+    loading = backgroundLoading;
+    Thread loader = new Thread(() -> {
+      try {
+        load();
+        backgroundLoading.complete(null);
+      } catch (ServiceException e) {
+        backgroundLoading.completeExceptionally(e);
+      }
+    }, "reservation-loader");
+    loader.setDaemon(true);
+    loader.start();
+    log.info("Loading reservations in the background");
+  }
+
+  private void load() {
     try {
-      var data = fileOperations.readFromFile();
-      reservations.addAll(data);
-      log.info("Loaded {} reservations", reservations.size());
+      long start = System.nanoTime();
+      AtomicInteger highestId = new AtomicInteger(Integer.MIN_VALUE);
+      AtomicInteger doubleBooked = new AtomicInteger();
+      fileOperations.readChunks(chunk -> {
+        for (Reservation reservation : chunk) {
+          store.load(reservation).ifPresent(night -> {
+            doubleBooked.incrementAndGet();
+            log.warn("Reservation {} double-books room {} on {}", reservation.getId(),
+                reservation.getRoomNumber(), night);
+          });
+          if (reservation.getId() != null) {
+            highestId.accumulateAndGet(reservation.getId(), Math::max);
+          }
+        }
+      });
+      if (highestId.get() != Integer.MIN_VALUE) {
+        idAllocator.advancePast(highestId.get());
+      }
+      log.info("Loaded {} reservations in {} ms", store.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      if (doubleBooked.get() > 0) {
+        log.warn("{} loaded reservations overlap another one of the same room; their nights "
+            + "stay booked until every holder has released them", doubleBooked.get());
+      }
+      if (checkpointer != null) {
+        checkpointer.start();
+      }
     } catch (Exception e) {
       log.error("Error loading data", e);
       throw new ServiceException("Error loading data");
@@ -42,15 +188,23 @@ public class ReservationService {
 
   /**
    * This method is invoked at the time of the bean destruction. It writes the data from the
-   * reservations set into a file.
+   * reservation store into a file. Nothing is written if the data was not fully loaded, since
+   * no change can have been made in that case.
    *
    * @throws ServiceException if an error occurs during writing the data to the file
    */
   @PreDestroy
   public void saveData() {
+    if (!loading.isDone() || loading.isCompletedExceptionally()) {
+      log.warn("Reservations were not fully loaded, skipping save");
+      return;
+    }
+    if (checkpointer != null) {
+      checkpointer.stop();
+    }
     try {
-      fileOperations.writeToFile(reservations);
-      log.info("Saved {} reservations", reservations.size());
+      fileOperations.writeToFile(new HashSet<>(store.values()));
+      log.info("Saved {} reservations", store.size());
     } catch (Exception e) {
       log.error("Error saving data", e);
       throw new ServiceException("Error saving data");
@@ -58,39 +212,132 @@ public class ReservationService {
   }
 
   /**
-   * Creates a new reservation and adds it to the reservations set.
+   * Creates a new reservation and adds it to the reservation store. Only the room's lock is held,
+   * so reservations for other rooms can be created at the same time.
    *
    * @param reservationRequest the new reservation to be added
    * @return the created reservation
-   * @throws ServiceException if an error occurs during the reservation creation
+   * @throws BadRequestException if the request is invalid or any of the dates is outside the
+   *                             bookable range
+   * @throws ConflictException   if the room is already booked on any of the requested dates
+   * @throws ServiceException    if an error occurs during the reservation creation
    */
   public ReservationResponse createReservation(ReservationRequest reservationRequest) {
-    var reservation = Reservation.builder()
-        .clientFullName(reservationRequest.getClientFullName())
-        .roomNumber(reservationRequest.getRoomNumber())
-        .reservationDates(reservationRequest.getReservationDates())
-        .build();
-
+    long start = System.nanoTime();
     try {
+      checkValid(reservationRequest);
+      awaitLoaded();
+      var reservation = Reservation.builder()
+          .id(idAllocator.nextId())
+          .clientFullName(reservationRequest.getClientFullName())
+          .roomNumber(reservationRequest.getRoomNumber())
+          .reservationDates(reservationRequest.getReservationDates())
+          .build();
+
+      try (var ignored = store.lockRooms(reservation.getRoomNumber())) {
+        Optional<LocalDate> conflict = store.tryBook(reservation);
+        if (conflict.isPresent()) {
+          throw roomAlreadyBooked(reservation.getRoomNumber(), conflict.get());
+        }
 
-      reservations.add(reservation);
+        try {
+          appendToFile(reservation);
+        } catch (Exception e) {
+          store.release(reservation);
+          log.error("Error creating reservation", e);
+          throw new ServiceException("Error creating reservation");
+        }
+        put(reservation);
+      }
 
       log.info("Created reservation with id {}", reservation.getId());
 
-      return ReservationResponse.builder()
-          .id(reservation.getId())
-          .clientFullName(reservation.getClientFullName())
-          .roomNumber(reservation.getRoomNumber())
-          .reservationDates(reservation.getReservationDates())
-          .build();
-    } catch (Exception e) {
-      log.error("Error creating reservation", e);
-      throw new ServiceException("Error creating reservation");
+      return toResponse(reservation);
+    } finally {
+      record(createTimer, start);
+    }
+  }
+
+  /**
+   * Creates several reservations at once. Every request is validated on its own and gets its own
+   * result; the valid ones are booked while holding the locks of all their rooms at once and
+   * persisted with a single write, so a burst costs one durable flush instead of one per
+   * reservation.
+   *
+   * @param reservationRequests the new reservations to be added
+   * @return one result per request, in the same order, with the created reservation or the errors
+   * @throws BadRequestException if more than the maximum number of requests is sent at once
+   * @throws ServiceException    if the accepted reservations cannot be booked or persisted, in
+   *                             which case none of them is created
+   */
+  public List<BatchItemResponse> createReservations(List<ReservationRequest> reservationRequests) {
+    if (reservationRequests.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException("At most " + MAX_BATCH_SIZE
+          + " reservations can be created at once");
+    }
+    awaitLoaded();
+
+    BatchItemResponse[] results = new BatchItemResponse[reservationRequests.size()];
+    Reservation[] candidates = new Reservation[reservationRequests.size()];
+    for (int index = 0; index < reservationRequests.size(); index++) {
+      ReservationRequest reservationRequest = reservationRequests.get(index);
+      Map<String, String> errors = validate(reservationRequest);
+      if (errors.isEmpty()) {
+        candidates[index] = Reservation.builder()
+            .id(idAllocator.nextId())
+            .clientFullName(reservationRequest.getClientFullName())
+            .roomNumber(reservationRequest.getRoomNumber())
+            .reservationDates(reservationRequest.getReservationDates())
+            .build();
+      } else {
+        results[index] = BatchItemResponse.rejected(index, HttpStatus.BAD_REQUEST, errors);
+      }
+    }
+
+    List<Integer> roomNumbers = Arrays.stream(candidates)
+        .filter(Objects::nonNull)
+        .map(Reservation::getRoomNumber)
+        .toList();
+    List<Reservation> accepted = new ArrayList<>();
+    try (var ignored = store.lockRooms(roomNumbers)) {
+      try {
+        for (int index = 0; index < candidates.length; index++) {
+          Reservation reservation = candidates[index];
+          if (reservation == null) {
+            continue;
+          }
+          Optional<LocalDate> conflict = store.tryBook(reservation);
+          if (conflict.isPresent()) {
+            results[index] = BatchItemResponse.rejected(index, HttpStatus.CONFLICT,
+                Map.of("reservationDates",
+                    alreadyBookedMessage(reservation.getRoomNumber(), conflict.get())));
+          } else {
+            accepted.add(reservation);
+          }
+        }
+        appendAllToFile(accepted);
+      } catch (Exception e) {
+        accepted.forEach(store::release);
+        log.error("Error creating reservations", e);
+        throw new ServiceException("Error creating reservations");
+      }
+      accepted.forEach(this::put);
+    }
+
+    for (int index = 0; index < candidates.length; index++) {
+      if (results[index] == null) {
+        results[index] = BatchItemResponse.created(index, toResponse(candidates[index]));
+      }
     }
+
+    log.info("Created {} of {} reservations in a batch", accepted.size(),
+        reservationRequests.size());
+
+    return Arrays.asList(results);
   }
 
   /**
-   * Retrieves all the reservations in the reservations set.
+   * Retrieves all the reservations in the reservation store, ordered by ID.
    *
    * @return a list of all reservations
    * @throws ServiceException if an error occurs during the retrieval of reservations
@@ -98,14 +345,8 @@ public class ReservationService {
   public List<ReservationResponse> getAllReservations() {
     try {
       log.info("Retrieving all reservations");
-      return reservations.stream()
-          .sorted(Comparator.comparing(Reservation::getId))
-          .map(reservation -> ReservationResponse.builder()
-              .id(reservation.getId())
-              .clientFullName(reservation.getClientFullName())
-              .roomNumber(reservation.getRoomNumber())
-              .reservationDates(reservation.getReservationDates())
-              .build())
+      return store.stream(null)
+          .map(ReservationService::toResponse)
           .toList();
     } catch (Exception e) {
       log.error("Error retrieving reservations", e);
@@ -114,49 +355,409 @@ public class ReservationService {
   }
 
   /**
-   * Updates the details of an existing reservation in the reservations set.
+   * Returns a number that changes whenever a reservation is loaded, created or updated, so that
+   * a caller can tell whether anything it derived from the reservations is still current without
+   * reading them.
    *
-   * @param id                 The ID of the reservation to update.
-   * @param reservationRequest The reservation request containing the updated information.
-   * @return The updated reservation response.
-   * @throws NotFoundException if the reservation with the provided ID is not found.
-   * @throws ServiceException  if an error occurs while updating the reservation.
+   * @return the current version of the reservations
    */
-  public ReservationResponse updateReservation(Integer id, ReservationRequest reservationRequest) {
-    Optional<Reservation> optionalReservation = reservations.stream()
-        .filter(reservation -> reservation.getId().equals(id))
-        .findFirst();
+  public long getVersion() {
+    return store.version();
+  }
 
-    try {
-      if (optionalReservation.isEmpty()) {
-        log.error("Reservation with id {} not found", id);
-        throw new NotFoundException("Reservation not found");
+  /**
+   * Streams the reservations ordered by ID straight from the reservation store. Nothing is
+   * collected up front, so a caller writing each element out as it arrives needs constant memory
+   * regardless of the number of reservations. Reservations changed while the stream is consumed
+   * may or may not be reflected.
+   *
+   * @return a lazy stream of all reservations
+   */
+  public Stream<ReservationResponse> streamReservations() {
+    log.info("Streaming all reservations");
+    return store.stream(null)
+        .map(ReservationService::toResponse);
+  }
+
+  /**
+   * Retrieves one page of reservations ordered by ID. The page starts right after the given
+   * cursor, so its cost depends on the page size and not on the number of reservations.
+   *
+   * @param limit the maximum number of reservations in the page
+   * @param after the ID of the last reservation of the previous page, or null for the first page
+   * @return the page of reservations and the cursor of the next page, null on the last page
+   * @throws BadRequestException if the limit is not between 1 and the maximum page size
+   */
+  public ReservationPage getReservationPage(int limit, Integer after) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new BadRequestException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    log.info("Retrieving {} reservations after id {}", limit, after);
+    List<ReservationResponse> page = store.stream(after)
+        .limit(limit + 1L)
+        .map(ReservationService::toResponse)
+        .toList();
+
+    boolean hasMore = page.size() > limit;
+    List<ReservationResponse> items = hasMore ? page.subList(0, limit) : page;
+    return ReservationPage.builder()
+        .reservations(items)
+        .nextCursor(hasMore ? items.get(limit - 1).getId() : null)
+        .build();
+  }
+
+  /**
+   * Lists which nights of a room are booked and which are free between two dates, both inclusive.
+   * The answer comes from the availability index and does not scan the reservations.
+   *
+   * @param roomNumber the room to check
+   * @param from       the first night of the range
+   * @param to         the last night of the range
+   * @return the available and booked dates of the room in the range
+   * @throws BadRequestException if the range is reversed or longer than a year
+   */
+  public AvailabilityResponse getAvailability(Integer roomNumber, LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new BadRequestException("The 'from' date must not be after the 'to' date");
+    }
+    if (ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS) {
+      throw new BadRequestException(
+          "Availability can be queried for at most " + MAX_AVAILABILITY_DAYS + " days");
+    }
+
+    List<LocalDate> bookedDates = store.bookedDates(roomNumber, from, to);
+    List<LocalDate> availableDates = new ArrayList<>();
+    int booked = 0;
+    for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+      if (booked < bookedDates.size() && bookedDates.get(booked).equals(date)) {
+        booked++;
+      } else {
+        availableDates.add(date);
       }
+    }
 
-      Reservation existingReservation = optionalReservation.get();
-      reservations.remove(existingReservation);
+    return AvailabilityResponse.builder()
+        .roomNumber(roomNumber)
+        .from(from)
+        .to(to)
+        .availableDates(availableDates)
+        .bookedDates(bookedDates)
+        .build();
+  }
 
-      Reservation updatedReservation = new Reservation();
-      updatedReservation.setId(existingReservation.getId());
-      updatedReservation.setClientFullName(reservationRequest.getClientFullName());
-      updatedReservation.setRoomNumber(reservationRequest.getRoomNumber());
-      updatedReservation.setReservationDates(reservationRequest.getReservationDates());
+  /**
+   * Finds the reservations holding at least one night between two dates, both inclusive, either
+   * in a single room or in every room. The answer comes from the date index, so its cost grows
+   * with the number of reservations found and not with the number stored.
+   *
+   * @param roomNumber the room to look in, or null to look in every room
+   * @param from       the first night of the range
+   * @param to         the last night of the range
+   * @return the matching reservations, ordered by ID
+   * @throws BadRequestException if the range is reversed or longer than a year
+   */
+  public List<ReservationResponse> findReservations(Integer roomNumber, LocalDate from,
+      LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new BadRequestException("The 'from' date must not be after the 'to' date");
+    }
+    if (ChronoUnit.DAYS.between(from, to) >= MAX_QUERY_DAYS) {
+      throw new BadRequestException(
+          "Reservations can be queried for at most " + MAX_QUERY_DAYS + " days");
+    }
 
-      reservations.add(updatedReservation);
+    log.info("Finding reservations of room {} between {} and {}", roomNumber, from, to);
+    List<Reservation> reservations = roomNumber == null
+        ? store.findByDates(from, to)
+        : store.findByRoom(roomNumber, from, to);
+    return reservations.stream()
+        .map(ReservationService::toResponse)
+        .toList();
+  }
 
-      log.info("Updated reservation with id {}", updatedReservation.getId());
+  /**
+   * Reports how many rooms are booked on each night between two dates, both inclusive, and the
+   * room-nights booked in total. The answer comes from counters kept up to date by every change,
+   * so it takes time proportional to the number of days and not to the number of reservations.
+   *
+   * <p>The occupancy rate of a night is relative to the rooms holding at least one booked night
+   * on any date, the only rooms the service knows of.
+   *
+   * @param from the first night of the range
+   * @param to   the last night of the range
+   * @return the occupancy of every night in the range
+   * @throws BadRequestException if the range is reversed or longer than a year
+   */
+  public OccupancyResponse getOccupancy(LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new BadRequestException("The 'from' date must not be after the 'to' date");
+    }
+    if (ChronoUnit.DAYS.between(from, to) >= MAX_QUERY_DAYS) {
+      throw new BadRequestException(
+          "Occupancy can be queried for at most " + MAX_QUERY_DAYS + " days");
+    }
 
-      return ReservationResponse.builder()
-          .id(updatedReservation.getId())
-          .clientFullName(updatedReservation.getClientFullName())
-          .roomNumber(updatedReservation.getRoomNumber())
-          .reservationDates(updatedReservation.getReservationDates())
-          .build();
-    } catch (NotFoundException e) {
+    int rooms = store.bookedRooms();
+    int[] bookedRooms = store.bookedRooms(from, to);
+    List<DailyOccupancy> days = new ArrayList<>(bookedRooms.length);
+    long roomNights = 0;
+    for (int i = 0; i < bookedRooms.length; i++) {
+      roomNights += bookedRooms[i];
+      days.add(DailyOccupancy.builder()
+          .date(from.plusDays(i))
+          .bookedRooms(bookedRooms[i])
+          .occupancyRate(rooms == 0 ? 0 : Math.min(1, (double) bookedRooms[i] / rooms))
+          .build());
+    }
+
+    return OccupancyResponse.builder()
+        .from(from)
+        .to(to)
+        .rooms(rooms)
+        .roomNights(roomNights)
+        .days(days)
+        .build();
+  }
+
+  /**
+   * Searches reservations by client name, ignoring case and accents. In prefix mode every word of
+   * the query must start some word of the name, so "jo smi" finds "John Smith"; in substring mode
+   * the name must contain the query. The answer comes from the name index.
+   *
+   * @param query     the name, or part of it, to look for
+   * @param substring whether to match anywhere in the name instead of at the start of its words
+   * @param limit     the maximum number of reservations returned
+   * @return the matching reservations with the lowest IDs, ordered by ID
+   * @throws BadRequestException if the query has no letters or digits, or the limit is not between
+   *                             1 and the maximum page size
+   */
+  public List<ReservationResponse> searchReservations(String query, boolean substring,
+      int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new BadRequestException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    if (ReservationNameIndex.words(query).isEmpty()) {
+      throw new BadRequestException("The name to search must contain letters or digits");
+    }
+
+    log.info("Searching up to {} reservations by name", limit);
+    return store.searchByName(query, substring, limit).stream()
+        .map(ReservationService::toResponse)
+        .toList();
+  }
+
+  /**
+   * Retrieves a single reservation by its ID.
+   *
+   * @param id The ID of the reservation to retrieve.
+   * @return The reservation response.
+   * @throws NotFoundException if the reservation with the provided ID is not found.
+   */
+  public ReservationResponse getReservation(Integer id) {
+    Reservation reservation = store.get(id);
+
+    if (reservation == null) {
+      log.error("Reservation with id {} not found", id);
+      throw new NotFoundException("Reservation not found");
+    }
+
+    return toResponse(reservation);
+  }
+
+  /**
+   * Updates the details of an existing reservation in the reservation store. The locks of both the
+   * current and the new room are held while the reservation is moved.
+   *
+   * @param id                 The ID of the reservation to update.
+   * @param reservationRequest The reservation request containing the updated information.
+   * @return The updated reservation response.
+   * @throws NotFoundException   if the reservation with the provided ID is not found.
+   * @throws BadRequestException if the request is invalid or any of the new dates is outside the
+   *                             bookable range.
+   * @throws ConflictException   if the room is already booked on any of the new dates.
+   * @throws ServiceException    if an error occurs while updating the reservation.
+   */
+  public ReservationResponse updateReservation(Integer id, ReservationRequest reservationRequest) {
+    long start = System.nanoTime();
+    awaitLoaded();
+    try {
+      checkValid(reservationRequest);
+      while (true) {
+        Reservation existingReservation = store.get(id);
+
+        if (existingReservation == null) {
+          log.error("Reservation with id {} not found", id);
+          throw new NotFoundException("Reservation not found");
+        }
+
+        try (var ignored = store.lockRooms(existingReservation.getRoomNumber(),
+            reservationRequest.getRoomNumber())) {
+          if (!existingReservation.equals(store.get(id))) {
+            continue;
+          }
+          return updateLocked(existingReservation, reservationRequest);
+        }
+      }
+    } catch (NotFoundException | ConflictException | BadRequestException e) {
       throw e;
     } catch (Exception e) {
       log.error("Error updating reservation", e);
       throw new ServiceException("Error updating reservation", e);
+    } finally {
+      record(updateTimer, start);
     }
   }
+
+  /**
+   * Applies an update while the locks of the current and the new room are held. The caller has
+   * checked that the existing reservation was not changed before the locks were acquired.
+   */
+  private ReservationResponse updateLocked(Reservation existingReservation,
+      ReservationRequest reservationRequest) {
+    Reservation updatedReservation = new Reservation();
+    updatedReservation.setId(existingReservation.getId());
+    updatedReservation.setClientFullName(reservationRequest.getClientFullName());
+    updatedReservation.setRoomNumber(reservationRequest.getRoomNumber());
+    updatedReservation.setReservationDates(reservationRequest.getReservationDates());
+
+    Optional<LocalDate> conflict = store.tryRebook(existingReservation, updatedReservation);
+    if (conflict.isPresent()) {
+      throw roomAlreadyBooked(updatedReservation.getRoomNumber(), conflict.get());
+    }
+
+    try {
+      appendToFile(updatedReservation);
+    } catch (RuntimeException e) {
+      store.tryRebook(updatedReservation, existingReservation);
+      throw e;
+    }
+    put(updatedReservation);
+
+    log.info("Updated reservation with id {}", updatedReservation.getId());
+
+    return toResponse(updatedReservation);
+  }
+
+  /**
+   * Blocks until the reservations have been loaded, which only takes time with background loading.
+   */
+  private void awaitLoaded() {
+    try {
+      loading.join();
+    } catch (CompletionException e) {
+      throw new ServiceException("Reservations could not be loaded");
+    }
+  }
+
+  /**
+   * Persists a change before it is stored, unless checkpointing is enabled, in which case the
+   * checkpointer persists it later.
+   */
+  private void appendToFile(Reservation reservation) {
+    if (checkpointer == null) {
+      fileOperations.appendToFile(reservation);
+    }
+  }
+
+  private void appendAllToFile(Collection<Reservation> reservations) {
+    if (checkpointer == null) {
+      fileOperations.appendAllToFile(reservations);
+    }
+  }
+
+  private void put(Reservation reservation) {
+    store.put(reservation);
+    if (checkpointer != null) {
+      checkpointer.markDirty(reservation.getId());
+    }
+  }
+
+  static Timer operationTimer(String operation, MeterRegistry registry) {
+    return Timer.builder("reservation.operation.duration")
+        .description("Time taken by reservation operations, including failed ones")
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  static void record(Timer timer, long start) {
+    if (timer != null) {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Map<String, String> validate(ReservationRequest reservationRequest) {
+    if (reservationRequest == null) {
+      return Map.of("request", "Reservation request cannot be null");
+    }
+    Map<String, String> errors = validator.validate(reservationRequest).stream()
+        .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(),
+            ConstraintViolation::getMessage, (first, second) -> first));
+    String dateError = unbookableDates(reservationRequest.getReservationDates());
+    if (dateError != null) {
+      errors.putIfAbsent("reservationDates", dateError);
+    }
+    return errors;
+  }
+
+  /**
+   * Applies the checks of {@link #validate(ReservationRequest)} to a single request, so that it is
+   * refused the same way as an item of a batch.
+   *
+   * @throws BadRequestException with every error found, ordered by field
+   */
+  private void checkValid(ReservationRequest reservationRequest) {
+    Map<String, String> errors = validate(reservationRequest);
+    if (!errors.isEmpty()) {
+      throw new BadRequestException(new TreeMap<>(errors).values().stream()
+          .collect(Collectors.joining("; ")));
+    }
+  }
+
+  /**
+   * Tells why some of the dates cannot be booked. Nights before {@link #FIRST_BOOKABLE_DATE}
+   * cannot be indexed, and nights more than {@value #MAX_YEARS_AHEAD} years ahead are refused so
+   * that a single request cannot stretch a room's availability bitmap over centuries. A date given
+   * twice is refused as well, since a night is booked once.
+   *
+   * @return the error message, or null if every date can be booked
+   */
+  private static String unbookableDates(List<LocalDate> dates) {
+    if (dates == null) {
+      return null;
+    }
+    LocalDate lastBookableDate = LocalDate.now().plusYears(MAX_YEARS_AHEAD);
+    Set<LocalDate> seen = new HashSet<>();
+    for (LocalDate date : dates) {
+      if (date != null && date.isBefore(FIRST_BOOKABLE_DATE)) {
+        return "Reservation dates cannot be before " + FIRST_BOOKABLE_DATE;
+      }
+      if (date != null && date.isAfter(lastBookableDate)) {
+        return "Reservation dates cannot be more than " + MAX_YEARS_AHEAD + " years ahead";
+      }
+      if (date != null && !seen.add(date)) {
+        return "Reservation dates cannot contain " + date + " twice";
+      }
+    }
+    return null;
+  }
+
+  private static ConflictException roomAlreadyBooked(Integer roomNumber, LocalDate date) {
+    log.error("Room {} is already booked on {}", roomNumber, date);
+    return new ConflictException(alreadyBookedMessage(roomNumber, date));
+  }
+
+  private static String alreadyBookedMessage(Integer roomNumber, LocalDate date) {
+    return "Room " + roomNumber + " is already booked on " + date;
+  }
+
+  private static ReservationResponse toResponse(Reservation reservation) {
+    return ReservationResponse.builder()
+        .id(reservation.getId())
+        .clientFullName(reservation.getClientFullName())
+        .roomNumber(reservation.getRoomNumber())
+        .reservationDates(reservation.getReservationDates())
+        .build();
+  }
 }
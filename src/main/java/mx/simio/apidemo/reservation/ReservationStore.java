@@ -0,0 +1,264 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent home of the reservations, of the availability, date and name indexes and of the
+ * occupancy counters.
+ *
+ * <p>Reads of reservations never lock: they come from a {@link ReservationTable}, kept on the heap
+ * unless an {@link OffHeapReservationTable} is given. Writes lock the stripes of the rooms they
+ * touch, so writes to rooms on different stripes never contend, while writes to the same room are
+ * serialized and the availability check and the table update happen as one step. The booking
+ * methods must be called while holding the locks of the rooms involved.
+ */
+class ReservationStore {
+
+  static final int DEFAULT_STRIPES = 256;
+
+  private final ReservationTable reservations;
+  private final RoomAvailabilityIndex availabilityIndex = new RoomAvailabilityIndex();
+  private final ReservationDateIndex dateIndex = new ReservationDateIndex();
+  private final ReservationNameIndex nameIndex = new ReservationNameIndex();
+  private final OccupancyCounters occupancy = new OccupancyCounters();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong version = new AtomicLong();
+  private final ReentrantLock[] stripes;
+
+  ReservationStore() {
+    this(DEFAULT_STRIPES);
+  }
+
+  ReservationStore(int stripeCount) {
+    this(stripeCount, new HeapReservationTable());
+  }
+
+  ReservationStore(int stripeCount, ReservationTable reservations) {
+    if (Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("The number of stripes must be a power of two");
+    }
+    stripes = new ReentrantLock[stripeCount];
+    Arrays.setAll(stripes, stripe -> new ReentrantLock());
+    this.reservations = reservations;
+  }
+
+  Reservation get(Integer id) {
+    return reservations.get(id);
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  /**
+   * Counts the changes made to the reservations. It is bumped after a change is visible, so
+   * whatever is read after reading the version is at least as new as that version.
+   */
+  long version() {
+    return version.get();
+  }
+
+  /**
+   * Streams the reservations ordered by ID, starting right after the given one, or from the first
+   * one if {@code after} is null.
+   */
+  Stream<Reservation> stream(Integer after) {
+    return reservations.stream(after);
+  }
+
+  Collection<Reservation> values() {
+    return reservations.values();
+  }
+
+  /**
+   * Adds a persisted reservation and books its dates without refusing conflicts. A night already
+   * held by another reservation of the room stays booked until both have released it.
+   *
+   * @return the first night of the reservation already held by another one, or an empty optional
+   * if there is none
+   */
+  Optional<LocalDate> load(Reservation reservation) {
+    try (RoomLocks ignored = lockRooms(reservation.getRoomNumber())) {
+      put(reservation);
+      return availabilityIndex.book(reservation.getRoomNumber(),
+          reservation.getReservationDates());
+    }
+  }
+
+  /**
+   * Acquires the stripe locks of the given rooms in stripe order, so that concurrent writers
+   * locking overlapping sets of rooms cannot deadlock.
+   *
+   * @return a handle that releases the locks when closed
+   */
+  RoomLocks lockRooms(Integer... roomNumbers) {
+    return lockRooms(Arrays.asList(roomNumbers));
+  }
+
+  RoomLocks lockRooms(Collection<Integer> roomNumbers) {
+    int[] indexes = roomNumbers.stream()
+        .mapToInt(this::stripeIndex)
+        .distinct()
+        .sorted()
+        .toArray();
+    for (int i = 0; i < indexes.length; i++) {
+      stripes[indexes[i]].lock();
+    }
+    return () -> {
+      for (int i = indexes.length - 1; i >= 0; i--) {
+        stripes[indexes[i]].unlock();
+      }
+    };
+  }
+
+  Optional<LocalDate> tryBook(Reservation reservation) {
+    assertLocked(reservation);
+    return availabilityIndex.tryBook(reservation.getRoomNumber(),
+        reservation.getReservationDates());
+  }
+
+  void release(Reservation reservation) {
+    assertLocked(reservation);
+    availabilityIndex.release(reservation.getRoomNumber(), reservation.getReservationDates());
+  }
+
+  Optional<LocalDate> tryRebook(Reservation existing, Reservation updated) {
+    assertLocked(existing);
+    assertLocked(updated);
+    return availabilityIndex.tryRebook(existing.getRoomNumber(), existing.getReservationDates(),
+        updated.getRoomNumber(), updated.getReservationDates());
+  }
+
+  /**
+   * Stores a reservation, replacing the one with the same id, and moves it in the date and name
+   * indexes and the occupancy counters. The rooms of both the previous and the new version must
+   * be locked.
+   */
+  void put(Reservation reservation) {
+    assertLocked(reservation);
+    Reservation previous = reservations.put(reservation);
+    if (previous == null) {
+      size.incrementAndGet();
+    } else {
+      dateIndex.remove(previous);
+      occupancy.remove(previous);
+    }
+    dateIndex.add(reservation);
+    occupancy.add(reservation);
+    if (previous == null
+        || !Objects.equals(previous.getClientFullName(), reservation.getClientFullName())) {
+      if (previous != null) {
+        nameIndex.remove(previous);
+      }
+      nameIndex.add(reservation);
+    }
+    version.incrementAndGet();
+  }
+
+  /**
+   * Lists the booked dates of a room between two dates, both inclusive.
+   */
+  List<LocalDate> bookedDates(Integer roomNumber, LocalDate from, LocalDate to) {
+    try (RoomLocks ignored = lockRooms(roomNumber)) {
+      return availabilityIndex.bookedDates(roomNumber, from, to);
+    }
+  }
+
+  /**
+   * Returns the number of booked rooms of each night between two dates, both inclusive.
+   */
+  int[] bookedRooms(LocalDate from, LocalDate to) {
+    return occupancy.bookedRooms(from, to);
+  }
+
+  /**
+   * Returns the number of rooms holding at least one booked night.
+   */
+  int bookedRooms() {
+    return occupancy.bookedRooms();
+  }
+
+  /**
+   * Lists the reservations of a room holding a night between two dates, both inclusive.
+   */
+  List<Reservation> findByRoom(Integer roomNumber, LocalDate from, LocalDate to) {
+    try (RoomLocks ignored = lockRooms(roomNumber)) {
+      return resolve(dateIndex.findByRoom(roomNumber, from, to), roomNumber, from, to);
+    }
+  }
+
+  /**
+   * Lists the reservations of any room holding a night between two dates, both inclusive.
+   */
+  List<Reservation> findByDates(LocalDate from, LocalDate to) {
+    return resolve(dateIndex.findByDates(from, to), null, from, to);
+  }
+
+  /**
+   * Lists, ordered by ID, up to {@code limit} reservations whose client name matches the query,
+   * as described by {@link ReservationNameIndex#matches}.
+   */
+  List<Reservation> searchByName(String query, boolean substring, int limit) {
+    return nameIndex.candidates(query, substring)
+        .map(reservations::get)
+        .filter(reservation -> reservation != null
+            && ReservationNameIndex.matches(reservation, query, substring))
+        .limit(limit)
+        .toList();
+  }
+
+  /**
+   * Looks up the reservations found in the date index and keeps those that, as stored right now,
+   * are still in the room and hold a night in the range.
+   */
+  private List<Reservation> resolve(Collection<Integer> ids, Integer roomNumber, LocalDate from,
+      LocalDate to) {
+    List<Reservation> found = new ArrayList<>(ids.size());
+    for (Integer id : ids) {
+      Reservation reservation = reservations.get(id);
+      if (reservation != null
+          && (roomNumber == null || roomNumber.equals(reservation.getRoomNumber()))
+          && holdsNightBetween(reservation, from, to)) {
+        found.add(reservation);
+      }
+    }
+    found.sort(Comparator.comparing(Reservation::getId));
+    return found;
+  }
+
+  private static boolean holdsNightBetween(Reservation reservation, LocalDate from, LocalDate to) {
+    List<LocalDate> dates = reservation.getReservationDates();
+    return dates != null
+        && dates.stream().anyMatch(date -> !date.isBefore(from) && !date.isAfter(to));
+  }
+
+  private int stripeIndex(Integer roomNumber) {
+    int hash = Objects.hashCode(roomNumber);
+    return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+  }
+
+  private void assertLocked(Reservation reservation) {
+    assert stripes[stripeIndex(reservation.getRoomNumber())].isHeldByCurrentThread()
+        : "Room " + reservation.getRoomNumber() + " must be locked";
+  }
+
+  /**
+   * Stripe locks held by the current thread, released on {@link #close()}.
+   */
+  interface RoomLocks extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,33 @@
+package mx.simio.apidemo.reservation;
+
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * The reservations of a {@link ReservationStore} keyed by id, without any of its indexes.
+ *
+ * <p>Reads never lock and may run while reservations are stored. Writes of the same id must not
+ * overlap, which the store guarantees with its room locks.
+ */
+interface ReservationTable {
+
+  Reservation get(Integer id);
+
+  /**
+   * Stores a reservation, replacing the one with the same id.
+   *
+   * @return the replaced reservation, or null if there was none
+   */
+  Reservation put(Reservation reservation);
+
+  /**
+   * Streams the reservations ordered by ID, starting right after the given one, or from the first
+   * one if {@code after} is null.
+   */
+  Stream<Reservation> stream(Integer after);
+
+  /**
+   * Returns a weakly consistent view of the reservations, ordered by ID.
+   */
+  Collection<Reservation> values();
+}
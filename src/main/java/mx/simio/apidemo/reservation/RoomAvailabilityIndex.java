@@ -0,0 +1,253 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import mx.simio.apidemo.exception.BadRequestException;
+
+/**
+ * Tracks which nights are booked for every room as a bitmap indexed by epoch day, so conflict
+ * checks never depend on how many reservations exist. Dates are handled as the {@link DateRuns} of
+ * the reservation: a run of consecutive nights is checked by looking for the next booked night
+ * from its first one, and booked or released as one range of bits, a word at a time. Each room's
+ * bitmap only spans the dates it has been booked for.
+ *
+ * <p>Persisted data may hold overlapping reservations of the same room, written before conflicts
+ * were checked. {@link #book} accepts them and counts the extra holders of each night held more
+ * than once, so that releasing one of them leaves the night booked until the last holder is
+ * released.
+ *
+ * <p>Reservations without a room number or without dates are not indexed.
+ *
+ * <p>Different rooms can be used from different threads at the same time, but calls for the same
+ * room must not overlap; {@link ReservationStore} serializes them with its room locks.
+ */
+class RoomAvailabilityIndex {
+
+  private final Map<Integer, RoomCalendar> calendars = new ConcurrentHashMap<>();
+
+  /**
+   * Books the given dates for a room unless any of them is already taken.
+   *
+   * @return the first date that is already booked, or an empty optional if the dates were booked
+   * @throws BadRequestException if any of the dates cannot be indexed, in which case nothing is
+   *                             booked
+   */
+  Optional<LocalDate> tryBook(Integer roomNumber, List<LocalDate> dates) {
+    checkSupported(dates);
+    Optional<LocalDate> conflict = findConflict(roomNumber, dates);
+    if (conflict.isEmpty()) {
+      book(roomNumber, dates);
+    }
+    return conflict;
+  }
+
+  /**
+   * Moves a booking to a new room and set of dates. The previous booking is kept if any of the new
+   * dates is taken by another reservation.
+   *
+   * @return the first date that is already booked, or an empty optional if the booking was moved
+   * @throws BadRequestException if any of the new dates cannot be indexed, in which case the
+   *                             previous booking is kept
+   */
+  Optional<LocalDate> tryRebook(Integer oldRoomNumber, List<LocalDate> oldDates,
+      Integer newRoomNumber, List<LocalDate> newDates) {
+    checkSupported(newDates);
+    release(oldRoomNumber, oldDates);
+    Optional<LocalDate> conflict = findConflict(newRoomNumber, newDates);
+    book(conflict.isEmpty() ? newRoomNumber : oldRoomNumber,
+        conflict.isEmpty() ? newDates : oldDates);
+    return conflict;
+  }
+
+  /**
+   * Books the given dates without refusing conflicts. Used when rebuilding the index from
+   * persisted reservations, and to book dates already checked.
+   *
+   * @return the first date that was already booked, which is now held once more, or an empty
+   * optional if none was
+   */
+  Optional<LocalDate> book(Integer roomNumber, List<LocalDate> dates) {
+    if (roomNumber == null || dates == null) {
+      return Optional.empty();
+    }
+    DateRuns runs = DateRuns.of(dates);
+    RoomCalendar calendar = calendars.computeIfAbsent(roomNumber, room -> new RoomCalendar());
+    int firstOverlap = -1;
+    for (int run = 0; run < runs.runCount(); run++) {
+      int overlap = calendar.book(firstDay(runs, run), lastDay(runs, run));
+      if (firstOverlap < 0) {
+        firstOverlap = overlap;
+      }
+    }
+    return firstOverlap < 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(firstOverlap));
+  }
+
+  void release(Integer roomNumber, List<LocalDate> dates) {
+    if (roomNumber == null || dates == null) {
+      return;
+    }
+    RoomCalendar calendar = calendars.get(roomNumber);
+    if (calendar == null) {
+      return;
+    }
+    DateRuns runs = DateRuns.of(dates);
+    for (int run = 0; run < runs.runCount(); run++) {
+      calendar.release(firstDay(runs, run), lastDay(runs, run));
+    }
+  }
+
+  /**
+   * Lists the booked dates of a room between two dates, both inclusive.
+   */
+  List<LocalDate> bookedDates(Integer roomNumber, LocalDate from, LocalDate to) {
+    List<LocalDate> dates = new ArrayList<>();
+    RoomCalendar calendar = calendars.get(roomNumber);
+    if (calendar == null) {
+      return dates;
+    }
+    int last = dayIndex(to.toEpochDay());
+    for (int day = calendar.nextBooked(dayIndex(from.toEpochDay())); day >= 0 && day <= last;
+        day = calendar.nextBooked(day + 1)) {
+      dates.add(LocalDate.ofEpochDay(day));
+    }
+    return dates;
+  }
+
+  private Optional<LocalDate> findConflict(Integer roomNumber, List<LocalDate> dates) {
+    if (roomNumber == null || dates == null) {
+      return Optional.empty();
+    }
+    RoomCalendar calendar = calendars.get(roomNumber);
+    if (calendar == null) {
+      return Optional.empty();
+    }
+    DateRuns runs = DateRuns.of(dates);
+    for (int run = 0; run < runs.runCount(); run++) {
+      int last = lastDay(runs, run);
+      int booked = calendar.nextBooked(firstDay(runs, run));
+      if (booked >= 0 && booked <= last) {
+        return Optional.of(LocalDate.ofEpochDay(booked));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Throws if any of the dates is outside the days the bitmaps can index, so that callers can
+   * check them before changing any booking.
+   */
+  private static void checkSupported(List<LocalDate> dates) {
+    if (dates == null) {
+      return;
+    }
+    DateRuns runs = DateRuns.of(dates);
+    for (int run = 0; run < runs.runCount(); run++) {
+      firstDay(runs, run);
+      lastDay(runs, run);
+    }
+  }
+
+  private static int firstDay(DateRuns runs, int run) {
+    return dayIndex(runs.runStart(run));
+  }
+
+  private static int lastDay(DateRuns runs, int run) {
+    return dayIndex(runs.runStart(run) + runs.runLength(run) - 1);
+  }
+
+  private static int dayIndex(long epochDay) {
+    if (epochDay < 0 || epochDay >= Integer.MAX_VALUE) {
+      throw new BadRequestException(
+          "Unsupported reservation date " + LocalDate.ofEpochDay(epochDay));
+    }
+    return (int) epochDay;
+  }
+
+  /**
+   * Booked nights of a single room. Bit {@code i} stands for epoch day {@code firstDay + i}, with
+   * {@code firstDay} aligned to a 64-day word so the bitmap can be shifted by whole words when an
+   * earlier night is booked. Nights held by more than one reservation also have an entry in
+   * {@code extraHolders}, created only when that happens, counting the holders beyond the first.
+   */
+  private static final class RoomCalendar {
+
+    private int firstDay = -1;
+    private BitSet days = new BitSet();
+    private Map<Integer, Integer> extraHolders;
+
+    /**
+     * Books the nights from {@code fromDay} to {@code toDay}, both inclusive.
+     *
+     * @return the first of those nights that was already booked, or -1 if there is none
+     */
+    int book(int fromDay, int toDay) {
+      if (firstDay < 0) {
+        firstDay = fromDay & ~63;
+      } else if (fromDay < firstDay) {
+        int newFirstDay = fromDay & ~63;
+        long[] words = days.toLongArray();
+        long[] shifted = new long[words.length + (firstDay - newFirstDay) / 64];
+        System.arraycopy(words, 0, shifted, (firstDay - newFirstDay) / 64, words.length);
+        days = BitSet.valueOf(shifted);
+        firstDay = newFirstDay;
+      }
+      int overlap = nextBooked(fromDay);
+      if (overlap < 0 || overlap > toDay) {
+        days.set(fromDay - firstDay, toDay - firstDay + 1);
+        return -1;
+      }
+      if (extraHolders == null) {
+        extraHolders = new HashMap<>();
+      }
+      for (int day = overlap; day >= 0 && day <= toDay; day = nextBooked(day + 1)) {
+        extraHolders.merge(day, 1, Integer::sum);
+      }
+      days.set(fromDay - firstDay, toDay - firstDay + 1);
+      return overlap;
+    }
+
+    /**
+     * Releases the nights from {@code fromDay} to {@code toDay}, both inclusive, except those
+     * still held by another reservation.
+     */
+    void release(int fromDay, int toDay) {
+      if (firstDay < 0 || toDay < firstDay) {
+        return;
+      }
+      if (extraHolders == null) {
+        days.clear(Math.max(fromDay - firstDay, 0), toDay - firstDay + 1);
+        return;
+      }
+      for (int day = nextBooked(fromDay); day >= 0 && day <= toDay; day = nextBooked(day + 1)) {
+        Integer extra = extraHolders.get(day);
+        if (extra == null) {
+          days.clear(day - firstDay);
+        } else if (extra == 1) {
+          extraHolders.remove(day);
+        } else {
+          extraHolders.put(day, extra - 1);
+        }
+      }
+      if (extraHolders.isEmpty()) {
+        extraHolders = null;
+      }
+    }
+
+    /**
+     * Returns the first booked epoch day on or after the given one, or -1 if there is none.
+     */
+    int nextBooked(int fromDay) {
+      if (firstDay < 0) {
+        return -1;
+      }
+      int bit = days.nextSetBit(Math.max(fromDay - firstDay, 0));
+      return bit < 0 ? -1 : firstDay + bit;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package mx.simio.apidemo;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+  private static final boolean SUPPORTED = Runtime.version().feature() >= 21;
+
+  @Test
+  void shouldRunTasksOnVirtualThreadsWhenSupported() throws Exception {
+    Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+
+    assertEquals(SUPPORTED, executor.isPresent());
+    if (executor.isPresent()) {
+      String name = executor.get().submit(() -> Thread.currentThread().getName())
+          .get(10, TimeUnit.SECONDS);
+      assertEquals("test-0", name);
+      executor.get().shutdown();
+    }
+  }
+
+  @Test
+  void shouldKeepThePlatformPoolWhenUnsupported() {
+    Http11NioProtocol protocol = new Http11NioProtocol();
+
+    new VirtualThreadConfiguration().virtualThreadProtocolHandlerCustomizer().customize(protocol);
+
+    assertEquals(SUPPORTED, protocol.getExecutor() != null);
+  }
+}
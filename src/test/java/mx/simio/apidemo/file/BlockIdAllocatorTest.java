@@ -0,0 +1,109 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockIdAllocatorTest {
+
+  @TempDir
+  Path tempDir;
+  Path idsFile;
+
+  private String filePath;
+
+  @BeforeEach
+  void setUp() {
+    filePath = tempDir.resolve("reservations.txt").toString();
+    idsFile = tempDir.resolve("reservations.txt.ids");
+  }
+
+  @Test
+  void shouldStartAtOneWithoutSequenceFile() {
+    BlockIdAllocator allocator = new BlockIdAllocator(filePath, 10);
+
+    assertEquals(1, allocator.nextId());
+    assertEquals(2, allocator.nextId());
+  }
+
+  @Test
+  void shouldPersistOnlyTheEndOfTheReservedBlock() throws IOException {
+    BlockIdAllocator allocator = new BlockIdAllocator(filePath, 10);
+
+    for (int i = 0; i < 10; i++) {
+      allocator.nextId();
+    }
+    assertEquals(11, readReservedUntil());
+
+    allocator.nextId();
+    assertEquals(21, readReservedUntil());
+  }
+
+  @Test
+  void shouldNeverReuseIdsAfterRestart() {
+    BlockIdAllocator allocator = new BlockIdAllocator(filePath, 10);
+    int last = 0;
+    for (int i = 0; i < 3; i++) {
+      last = allocator.nextId();
+    }
+
+    BlockIdAllocator restarted = new BlockIdAllocator(filePath, 10);
+
+    int next = restarted.nextId();
+    assertTrue(next > last);
+    assertEquals(11, next);
+  }
+
+  @Test
+  void shouldAdvancePastIdsFoundOnDisk() {
+    BlockIdAllocator allocator = new BlockIdAllocator(filePath, 10);
+
+    allocator.advancePast(500);
+    allocator.advancePast(20);
+
+    assertEquals(501, allocator.nextId());
+    assertEquals(502, allocator.nextId());
+  }
+
+  @Test
+  void shouldHandOutUniqueIdsConcurrently() throws Exception {
+    BlockIdAllocator allocator = new BlockIdAllocator(filePath, 7);
+    Set<Integer> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1_000; i++) {
+            assertTrue(ids.add(allocator.nextId()));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(8_000, ids.size());
+    assertTrue(new BlockIdAllocator(filePath, 7).nextId() > 8_000);
+  }
+
+  private int readReservedUntil() throws IOException {
+    return ByteBuffer.wrap(Files.readAllBytes(idsFile)).getInt();
+  }
+}
@@ -4,13 +4,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 import mx.simio.apidemo.exception.ServiceException;
 import mx.simio.apidemo.reservation.Reservation;
 import org.junit.jupiter.api.AfterEach;
@@ -49,14 +51,14 @@ class FileUtilImplTest {
   }
 
   @Test
-  void shouldWriteToFileSuccessfully() throws IOException, ClassNotFoundException {
+  void shouldWriteToFileSuccessfully() throws IOException {
     Set<Reservation> reservationSet = new HashSet<>();
     reservationSet.add(reservation);
 
     fileUtil.writeToFile(reservationSet);
 
-    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(tempFile))) {
-      Set<Reservation> result = (Set<Reservation>) ois.readObject();
+    try (FileInputStream fis = new FileInputStream(tempFile)) {
+      Set<Reservation> result = ReservationCodec.read(fis);
 
       assertFalse(result.isEmpty());
       assertEquals(reservationSet.size(), result.size());
@@ -76,18 +78,75 @@ class FileUtilImplTest {
   }
 
   @Test
-  void shouldWriteEmptySetToFile() throws IOException, ClassNotFoundException {
+  void shouldWriteEmptySetToFile() throws IOException {
     Set<Reservation> emptySet = new HashSet<>();
 
     fileUtil.writeToFile(emptySet);
 
-    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(tempFile))) {
-      Set<Reservation> result = (Set<Reservation>) ois.readObject();
+    try (FileInputStream fis = new FileInputStream(tempFile)) {
+      Set<Reservation> result = ReservationCodec.read(fis);
 
       assertTrue(result.isEmpty());
     }
   }
 
+  @Test
+  void shouldReadBackWrittenReservations() {
+    Reservation other = new Reservation(2, "Jane Smith", null, null);
+
+    fileUtil.writeToFile(new HashSet<>(Set.of(reservation, other)));
+
+    assertEquals(Set.of(reservation, other), fileUtil.readFromFile());
+  }
+
+  @Test
+  void shouldRewriteLegacyFileInBinaryFormat() throws IOException {
+    try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(tempFile))) {
+      oos.writeObject(new HashSet<>(Set.of(reservation)));
+    }
+
+    Set<Reservation> legacy = fileUtil.readFromFile();
+    fileUtil.writeToFile(legacy);
+
+    assertTrue(ReservationCodec.hasMagic(Files.readAllBytes(tempFile.toPath())));
+    assertEquals(Set.of(reservation), fileUtil.readFromFile());
+  }
+
+  @Test
+  void shouldReplaceFileWithoutLeavingATemporaryOne() throws IOException {
+    Reservation other = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+    fileUtil.writeToFile(new HashSet<>(Set.of(reservation)));
+    long firstSize = Files.size(tempFile.toPath());
+
+    fileUtil.writeToFile(new HashSet<>(Set.of(other)));
+
+    assertEquals(Set.of(other), fileUtil.readFromFile());
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(List.of(tempFile.toPath()), files.toList());
+    }
+    assertEquals(firstSize + Files.size(tempFile.toPath()), fileUtil.getBytesWritten());
+  }
+
+  @Test
+  void shouldThrowServiceExceptionIfBinaryFileIsTruncated() throws IOException {
+    fileUtil.writeToFile(new HashSet<>(Set.of(reservation)));
+    byte[] bytes = Files.readAllBytes(tempFile.toPath());
+    Files.write(tempFile.toPath(), Arrays.copyOf(bytes, bytes.length - 2));
+
+    assertThrows(ServiceException.class, () -> fileUtil.readFromFile());
+    assertThrows(ServiceException.class, () -> fileUtil.readChunks(chunk -> {
+    }));
+  }
+
+  @Test
+  void shouldThrowServiceExceptionIfFileIsEmpty() throws IOException {
+    Files.write(tempFile.toPath(), new byte[0]);
+
+    assertThrows(ServiceException.class, () -> fileUtil.readFromFile());
+    assertThrows(ServiceException.class, () -> fileUtil.readChunks(chunk -> {
+    }));
+  }
+
   @Test
   void shouldReturnEmptySetIfFileDoesNotExist() {
     FileUtilImpl fileUtil = new FileUtilImpl(tempDir.resolve("not_existing_file.txt").toString());
@@ -98,18 +157,17 @@ class FileUtilImplTest {
   }
 
   @Test
-  void shouldReturnEmptySetIfFileExistsButIsNotASet() throws IOException {
+  void shouldThrowServiceExceptionIfFileExistsButIsNotASet() throws IOException {
     try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(tempFile))) {
       oos.writeObject("Not a set");
     }
 
-    Set<Reservation> result = fileUtil.readFromFile();
-
-    assertTrue(result.isEmpty());
+    assertThrows(ServiceException.class, () -> fileUtil.readFromFile());
   }
 
   @Test
-  void shouldReturnEmptySetIfFileExistsButNotAllObjectsAreReservations() throws IOException {
+  void shouldThrowServiceExceptionIfFileExistsButNotAllObjectsAreReservations()
+      throws IOException {
     Set<Object> mixedSet = new HashSet<>();
     mixedSet.add(reservation);
     mixedSet.add("Not a reservation object");
@@ -118,9 +176,7 @@ class FileUtilImplTest {
       oos.writeObject(mixedSet);
     }
 
-    Set<Reservation> result = fileUtil.readFromFile();
-
-    assertTrue(result.isEmpty());
+    assertThrows(ServiceException.class, () -> fileUtil.readFromFile());
   }
 
   @Test
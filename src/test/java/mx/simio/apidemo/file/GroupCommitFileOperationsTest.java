@@ -0,0 +1,178 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitFileOperationsTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldCommitCallersQueuedDuringAWriteAsOneBatch() throws Exception {
+    CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+    List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    FileOperations backend = new AppendingBackend() {
+      @Override
+      public void appendAllToFile(Collection<Reservation> reservations) {
+        batches.add(reservations.stream().map(Reservation::getId).toList());
+        firstWriteStarted.countDown();
+        await(releaseFirstWrite);
+      }
+    };
+    MeterRegistry registry = new SimpleMeterRegistry();
+    GroupCommitFileOperations groupCommit =
+        new GroupCommitFileOperations(backend, 100, Duration.ZERO, registry);
+
+    Future<?> first = executor.submit(() -> groupCommit.appendToFile(reservation(0)));
+    assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+    List<Future<?>> others = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      int id = i;
+      others.add(executor.submit(() -> groupCommit.appendToFile(reservation(id))));
+    }
+    Thread.sleep(200);
+    assertFalse(others.stream().anyMatch(Future::isDone));
+    releaseFirstWrite.countDown();
+    first.get(10, TimeUnit.SECONDS);
+    for (Future<?> other : others) {
+      other.get(10, TimeUnit.SECONDS);
+    }
+    groupCommit.close();
+
+    assertEquals(2, batches.size());
+    assertEquals(List.of(0), batches.get(0));
+    assertEquals(Set.of(1, 2, 3, 4, 5), Set.copyOf(batches.get(1)));
+    DistributionSummary batchSize = registry.get("reservation.persistence.batch.size").summary();
+    assertEquals(2, batchSize.count());
+    assertEquals(5, batchSize.max());
+  }
+
+  @Test
+  void shouldFailEveryCallerOfAFailedBatch() throws Exception {
+    FileOperations backend = new AppendingBackend() {
+      @Override
+      public void appendAllToFile(Collection<Reservation> reservations) {
+        throw new ServiceException("Error appending to journal");
+      }
+    };
+    GroupCommitFileOperations groupCommit =
+        new GroupCommitFileOperations(backend, 100, Duration.ofMillis(50), null);
+
+    List<Future<?>> calls = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int id = i;
+      calls.add(executor.submit(() -> groupCommit.appendToFile(reservation(id))));
+    }
+    for (Future<?> call : calls) {
+      Exception e = assertThrows(Exception.class, () -> call.get(10, TimeUnit.SECONDS));
+      assertInstanceOf(ServiceException.class, e.getCause());
+    }
+    groupCommit.close();
+  }
+
+  @Test
+  void shouldMakeConcurrentAppendsDurableInTheJournal() throws Exception {
+    JournalFileOperations journal = new JournalFileOperations(
+        tempDir.resolve("reservations.txt").toString(), 100_000, true);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    GroupCommitFileOperations groupCommit =
+        new GroupCommitFileOperations(journal, 1000, Duration.ofMillis(1), registry);
+
+    List<Future<?>> calls = IntStream.range(0, 400)
+        .mapToObj(id -> executor.submit(() -> groupCommit.appendToFile(reservation(id))))
+        .collect(Collectors.toList());
+    for (Future<?> call : calls) {
+      call.get(30, TimeUnit.SECONDS);
+    }
+    groupCommit.close();
+    journal.close();
+
+    JournalFileOperations reopened = new JournalFileOperations(
+        tempDir.resolve("reservations.txt").toString(), 100_000, true);
+    assertEquals(400, reopened.readFromFile().size());
+    DistributionSummary batchSize = registry.get("reservation.persistence.batch.size").summary();
+    assertEquals(400, batchSize.totalAmount());
+    assertTrue(batchSize.count() < 400);
+    reopened.close();
+  }
+
+  @Test
+  void shouldAppendDirectlyOnceClosed() {
+    List<Reservation> appended = new CopyOnWriteArrayList<>();
+    FileOperations backend = new AppendingBackend() {
+      @Override
+      public void appendAllToFile(Collection<Reservation> reservations) {
+        appended.addAll(reservations);
+      }
+    };
+    GroupCommitFileOperations groupCommit =
+        new GroupCommitFileOperations(backend, 100, Duration.ofMillis(1), null);
+
+    groupCommit.appendToFile(reservation(1));
+    groupCommit.close();
+    groupCommit.appendAllToFile(List.of(reservation(2), reservation(3)));
+
+    assertEquals(List.of(1, 2, 3), appended.stream().map(Reservation::getId).toList());
+  }
+
+  private static Reservation reservation(int id) {
+    return new Reservation(id, "Guest " + id, 100 + id, List.of(LocalDate.of(2030, 1, 1)));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private abstract static class AppendingBackend implements FileOperations {
+
+    @Override
+    public void writeToFile(Set<Reservation> reservations) {
+    }
+
+    @Override
+    public Set<Reservation> readFromFile() {
+      return Set.of();
+    }
+
+    @Override
+    public boolean supportsAppend() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package mx.simio.apidemo.file;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentedFileOperationsTest {
+
+  @TempDir
+  Path tempDir;
+
+  private MeterRegistry registry;
+  private FileUtilImpl backend;
+  private InstrumentedFileOperations instrumented;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    backend = new FileUtilImpl(tempDir.resolve("reservations.txt").toString());
+    instrumented = new InstrumentedFileOperations(backend, registry);
+  }
+
+  @Test
+  void shouldTimeWritesAndReadsAndRecordTheirSize() {
+    Set<Reservation> reservations = new HashSet<>(Set.of(
+        new Reservation(1, "John Doe", 101, List.of(LocalDate.now())),
+        new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()))));
+
+    instrumented.writeToFile(reservations);
+    assertEquals(reservations, instrumented.readFromFile());
+    instrumented.readChunks(chunk -> {
+    });
+
+    assertEquals(1, timer("write"));
+    assertEquals(2, timer("read"));
+    assertEquals(backend.getBytesWritten(),
+        registry.get("reservation.persistence.size").tag("operation", "write").summary()
+            .totalAmount());
+    assertEquals(2 * backend.getBytesWritten(),
+        registry.get("reservation.persistence.size").tag("operation", "read").summary()
+            .totalAmount());
+    assertEquals(backend.getBytesWritten(), registry.get("reservation.persistence.bytes")
+        .tag("direction", "written").functionCounter().count());
+  }
+
+  @Test
+  void shouldTimeFailedCalls() {
+    FileOperations failing = mock(FileOperations.class);
+    doThrow(new ServiceException("Error writing to file")).when(failing).appendToFile(any());
+    registry = new SimpleMeterRegistry();
+    instrumented = new InstrumentedFileOperations(failing, registry);
+
+    assertThrows(ServiceException.class,
+        () -> instrumented.appendToFile(new Reservation(1, "John Doe", 101, null)));
+    assertEquals(1, timer("append"));
+  }
+
+  @Test
+  void shouldPassThroughCapabilities() {
+    FileOperations journal = mock(FileOperations.class);
+    when(journal.supportsAppend()).thenReturn(true);
+    when(journal.getBytesWritten()).thenReturn(42L);
+
+    instrumented = new InstrumentedFileOperations(journal, registry);
+
+    assertTrue(instrumented.supportsAppend());
+    assertEquals(42L, instrumented.getBytesWritten());
+    instrumented.appendAllToFile(List.of());
+    verify(journal).appendAllToFile(List.of());
+  }
+
+  private long timer(String operation) {
+    return registry.get("reservation.persistence.duration").tag("operation", operation).timer()
+        .count();
+  }
+}
@@ -0,0 +1,202 @@
+package mx.simio.apidemo.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalFileOperationsTest {
+
+  @TempDir
+  Path tempDir;
+  Path snapshotFile;
+  Path journalFile;
+
+  private JournalFileOperations journal;
+
+  @BeforeEach
+  void setUp() {
+    snapshotFile = tempDir.resolve("reservations.txt");
+    journalFile = tempDir.resolve("reservations.txt.journal");
+    journal = new JournalFileOperations(snapshotFile.toString(), 100, true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    journal.close();
+  }
+
+  @Test
+  void shouldReplayAppendedRecordsAfterRestart() {
+    Reservation reservation = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+
+    journal.appendToFile(reservation);
+    journal.close();
+
+    Set<Reservation> result = reopen().readFromFile();
+
+    assertEquals(Set.of(reservation), result);
+    assertFalse(Files.exists(snapshotFile));
+  }
+
+  @Test
+  void shouldReplayRecordsAppendedTogether() {
+    Reservation first = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation second = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+
+    journal.appendAllToFile(List.of(first, second));
+    journal.close();
+
+    Set<Reservation> result = reopen().readFromFile();
+
+    assertEquals(Set.of(first, second), result);
+  }
+
+  @Test
+  void shouldKeepLatestRecordForTheSameId() {
+    Reservation original = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation updated = new Reservation(1, "Jane Smith", 102,
+        List.of(LocalDate.now().plusDays(1)));
+
+    journal.appendToFile(original);
+    journal.appendToFile(updated);
+    journal.close();
+
+    Set<Reservation> result = reopen().readFromFile();
+
+    assertEquals(Set.of(updated), result);
+  }
+
+  @Test
+  void shouldReplayJournalOnTopOfSnapshot() {
+    Reservation snapshotted = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation journaled = new Reservation(2, "Jane Smith", 102, null);
+
+    journal.writeToFile(new HashSet<>(Set.of(snapshotted)));
+    journal.appendToFile(journaled);
+    journal.close();
+
+    Set<Reservation> result = reopen().readFromFile();
+
+    assertEquals(Set.of(snapshotted, journaled), result);
+  }
+
+  @Test
+  void shouldTruncateJournalWhenWritingFullSnapshot() {
+    Reservation reservation = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+
+    journal.appendToFile(reservation);
+    journal.writeToFile(new HashSet<>(Set.of(reservation)));
+
+    assertTrue(Files.exists(snapshotFile));
+    assertFalse(Files.exists(journalFile));
+    assertEquals(Set.of(reservation), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldCompactJournalIntoSnapshotOnceThresholdIsReached() {
+    JournalFileOperations compacting = new JournalFileOperations(snapshotFile.toString(), 2, false);
+    Reservation first = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation second = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+    Reservation third = new Reservation(3, "Max Power", 103, List.of(LocalDate.now()));
+
+    compacting.appendToFile(first);
+    compacting.appendToFile(second);
+    compacting.awaitCompaction();
+    compacting.appendToFile(third);
+    compacting.close();
+
+    assertEquals(Set.of(first, second), new FileUtilImpl(snapshotFile.toString()).readFromFile());
+    assertEquals(Set.of(first, second, third), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldDiscardTornRecordAtTheEndOfTheJournal() throws IOException {
+    Reservation reservation = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+
+    journal.appendToFile(reservation);
+    journal.appendToFile(new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now())));
+    journal.close();
+    try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    Set<Reservation> result = reopen().readFromFile();
+
+    assertEquals(Set.of(reservation), result);
+  }
+
+  @Test
+  void shouldTruncateJournalBackAfterAFailedAppend() {
+    journal.close();
+    journal = new JournalFileOperations(snapshotFile.toString(), 100, true) {
+      private boolean fail = true;
+
+      @Override
+      void write(FileChannel channel, ByteBuffer[] records, long length) throws IOException {
+        if (fail) {
+          fail = false;
+          channel.write(records[0].limit(records[0].limit() / 2));
+          throw new IOException("Disk full");
+        }
+        super.write(channel, records, length);
+      }
+    };
+    Reservation failed = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation appended = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+
+    assertThrows(ServiceException.class, () -> journal.appendToFile(failed));
+    journal.appendToFile(appended);
+    journal.close();
+
+    assertEquals(Set.of(appended), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldReplayRecordsWithOneEpochDayPerDate() throws IOException {
+    journal.close();
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(payload)) {
+      out.writeInt(1);
+      out.writeByte(1 | 1 << 1 | 1 << 2);
+      out.writeUTF("John Doe");
+      out.writeInt(101);
+      out.writeInt(3);
+      out.writeInt((int) LocalDate.of(2026, 1, 1).toEpochDay());
+      out.writeInt((int) LocalDate.of(2026, 1, 2).toEpochDay());
+      out.writeInt((int) LocalDate.of(2026, 1, 5).toEpochDay());
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(journalFile))) {
+      out.writeInt(payload.size());
+      out.write(payload.toByteArray());
+      out.writeInt((int) crc.getValue());
+    }
+
+    assertEquals(Set.of(new Reservation(1, "John Doe", 101, List.of(LocalDate.of(2026, 1, 1),
+        LocalDate.of(2026, 1, 2), LocalDate.of(2026, 1, 5)))), reopen().readFromFile());
+  }
+
+  private JournalFileOperations reopen() {
+    journal = new JournalFileOperations(snapshotFile.toString(), 100, true);
+    return journal;
+  }
+}
@@ -0,0 +1,139 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileOperationsTest {
+
+  @TempDir
+  Path tempDir;
+  Path file;
+
+  private MappedFileOperations mapped;
+
+  @BeforeEach
+  void setUp() {
+    file = tempDir.resolve("reservations.txt");
+    mapped = new MappedFileOperations(file.toString(), true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    mapped.close();
+  }
+
+  @Test
+  void shouldStartEmptyWhenFileDoesNotExist() {
+    Set<Reservation> result = mapped.readFromFile();
+
+    assertTrue(result.isEmpty());
+    assertTrue(Files.exists(file));
+  }
+
+  @Test
+  void shouldRestoreAppendedReservationsAfterRestart() {
+    Reservation first = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation second = new Reservation(2, "Jane Smith", null, null);
+    Reservation third = new Reservation(3, null, 103,
+        List.of(LocalDate.now(), LocalDate.now().plusDays(1)));
+
+    mapped.readFromFile();
+    mapped.appendToFile(first);
+    mapped.appendAllToFile(List.of(second, third));
+
+    assertEquals(Set.of(first, second, third), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldRewriteTheSlotOfAnUpdatedReservation() throws IOException {
+    Reservation original = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation updated = new Reservation(1, "Jane Smith", 102,
+        List.of(LocalDate.now().plusDays(1)));
+
+    mapped.readFromFile();
+    mapped.appendToFile(original);
+    long size = Files.size(file);
+    mapped.appendToFile(updated);
+    mapped.appendToFile(original);
+    mapped.appendToFile(updated);
+
+    assertEquals(Set.of(updated), reopen().readFromFile());
+    assertTrue(Files.size(file) - size < 200, "Updates should not add slots");
+  }
+
+  @Test
+  void shouldGrowTheSlotAreaWhenItIsFull() {
+    List<Reservation> reservations = new ArrayList<>();
+    for (int id = 1; id <= 3_000; id++) {
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 50,
+          List.of(LocalDate.now().plusDays(id % 30))));
+    }
+
+    mapped.readFromFile();
+    mapped.appendAllToFile(reservations.subList(0, 1_000));
+    mapped.appendAllToFile(reservations.subList(1_000, 1_500));
+    reservations.subList(1_500, 3_000).forEach(mapped::appendToFile);
+
+    assertEquals(new HashSet<>(reservations), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldReplaceContentsWhenWritingTheFullSet() {
+    Reservation kept = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation dropped = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+
+    mapped.readFromFile();
+    mapped.appendAllToFile(List.of(kept, dropped));
+    mapped.writeToFile(new HashSet<>(Set.of(kept)));
+
+    assertEquals(Set.of(kept), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldFallBackToThePreviousVersionOfATornSlot() throws IOException {
+    Reservation original = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation updated = new Reservation(1, "Jane Smith", 102, List.of(LocalDate.now()));
+
+    mapped.readFromFile();
+    mapped.appendToFile(original);
+    mapped.appendToFile(updated);
+    mapped.close();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      // The update went into the first version of slot 0, right after the 64-byte header.
+      channel.write(ByteBuffer.wrap(new byte[] {0x7F}), 64 + 8);
+    }
+
+    assertEquals(Set.of(original), reopen().readFromFile());
+  }
+
+  @Test
+  void shouldRejectFileInAnotherFormat() throws IOException {
+    new FileUtilImpl(file.toString()).writeToFile(
+        new HashSet<>(Set.of(new Reservation(1, "John Doe", 101, null))));
+
+    assertThrows(ServiceException.class, mapped::readFromFile);
+  }
+
+  private MappedFileOperations reopen() {
+    mapped.close();
+    mapped = new MappedFileOperations(file.toString(), true);
+    return mapped;
+  }
+}
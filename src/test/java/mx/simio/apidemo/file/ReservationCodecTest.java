@@ -0,0 +1,146 @@
+package mx.simio.apidemo.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationCodecTest {
+
+  private static final LocalDate CHECK_IN = LocalDate.of(2026, 3, 1);
+
+  @Test
+  void shouldRoundTripReservationsWithMissingFields() throws IOException {
+    Set<Reservation> reservations = Set.of(
+        new Reservation(1, "John Doe", 101, List.of(CHECK_IN)),
+        new Reservation(2, null, null, null),
+        new Reservation(null, "Jane Smith", -5, List.of()),
+        new Reservation(Integer.MAX_VALUE, "Zo\u00eb \u00d1\u00fa\u00f1ez \u5317\u4eac",
+            Integer.MIN_VALUE, List.of(CHECK_IN)));
+
+    assertEquals(reservations, roundTrip(reservations));
+  }
+
+  @Test
+  void shouldKeepDateOrderAcrossRuns() throws IOException {
+    List<LocalDate> dates = List.of(CHECK_IN.plusDays(10), CHECK_IN.plusDays(11), CHECK_IN,
+        CHECK_IN.plusDays(1), CHECK_IN.plusDays(2), CHECK_IN.plusDays(2), LocalDate.of(1960, 1, 1));
+    Reservation reservation = new Reservation(1, "John Doe", 101, dates);
+
+    Reservation result = roundTrip(Set.of(reservation)).iterator().next();
+
+    assertEquals(dates, result.getReservationDates());
+  }
+
+  @Test
+  void shouldEncodeLongStaysInAFewBytes() throws IOException {
+    List<LocalDate> dates = new ArrayList<>();
+    for (int night = 0; night < 365; night++) {
+      dates.add(CHECK_IN.plusDays(night));
+    }
+
+    byte[] bytes = encode(Set.of(new Reservation(1, "John Doe", 101, dates)));
+
+    assertTrue(bytes.length < 40, "Encoded " + bytes.length + " bytes");
+  }
+
+  @Test
+  void shouldRejectTruncatedInput() throws IOException {
+    byte[] bytes = encode(Set.of(new Reservation(1, "John Doe", 101, List.of(CHECK_IN))));
+
+    assertThrows(EOFException.class, () -> ReservationCodec.read(
+        new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+  }
+
+  @Test
+  void shouldRejectUnknownFormatVersion() throws IOException {
+    byte[] bytes = encode(Set.of());
+    bytes[ReservationCodec.MAGIC.length] = 99;
+
+    assertThrows(IOException.class, () -> ReservationCodec.read(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  void shouldRoundTripMoreReservationsThanFitInOneBuffer() throws IOException {
+    Set<Reservation> reservations = new HashSet<>();
+    for (int id = 1; id <= 20_000; id++) {
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500,
+          List.of(CHECK_IN.plusDays(id % 365), CHECK_IN.plusDays(id % 365 + 1))));
+    }
+
+    assertEquals(reservations, roundTrip(reservations));
+  }
+
+  @Test
+  void shouldDecodeChunksInParallel() throws IOException {
+    Set<Reservation> reservations = new HashSet<>();
+    for (int id = 1; id <= 3 * ReservationCodec.CHUNK_SIZE + 5; id++) {
+      reservations.add(new Reservation(id, "Guest " + id, 100 + id % 500, List.of(CHECK_IN)));
+    }
+    Set<Reservation> decoded = ConcurrentHashMap.newKeySet();
+    AtomicInteger chunks = new AtomicInteger();
+
+    long count = ReservationCodec.readChunks(ByteBuffer.wrap(encode(reservations)), chunk -> {
+      decoded.addAll(chunk);
+      chunks.incrementAndGet();
+    });
+
+    assertEquals(reservations.size(), count);
+    assertEquals(4, chunks.get());
+    assertEquals(reservations, decoded);
+  }
+
+  @Test
+  void shouldReadUnchunkedVersionOneFormat() throws IOException {
+    byte[] bytes = {'R', 'S', 'V', 'B', 1, 1, 1, 2};
+    List<Reservation> chunk = new ArrayList<>();
+
+    ReservationCodec.readChunks(ByteBuffer.wrap(bytes), chunk::addAll);
+
+    assertEquals(List.of(new Reservation(1, null, null, null)), chunk);
+    assertEquals(Set.of(new Reservation(1, null, null, null)),
+        ReservationCodec.read(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  void shouldRejectSnapshotMissingWholeChunks() throws IOException {
+    Set<Reservation> reservations = new HashSet<>();
+    for (int id = 1; id <= ReservationCodec.CHUNK_SIZE + 1; id++) {
+      reservations.add(new Reservation(id, null, 101, null));
+    }
+    byte[] bytes = encode(reservations);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    int firstChunkEnd = ReservationCodec.MAGIC.length + 1 + 3 + Integer.BYTES
+        + buffer.getInt(ReservationCodec.MAGIC.length + 1 + 3);
+    byte[] truncated = Arrays.copyOf(bytes, firstChunkEnd);
+
+    assertThrows(IOException.class,
+        () -> ReservationCodec.readChunks(ByteBuffer.wrap(truncated), chunk -> {
+        }));
+    assertThrows(IOException.class,
+        () -> ReservationCodec.read(new ByteArrayInputStream(truncated)));
+  }
+
+  private static Set<Reservation> roundTrip(Set<Reservation> reservations) throws IOException {
+    return ReservationCodec.read(new ByteArrayInputStream(encode(reservations)));
+  }
+
+  private static byte[] encode(Set<Reservation> reservations) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReservationCodec.write(reservations, out);
+    return out.toByteArray();
+  }
+}
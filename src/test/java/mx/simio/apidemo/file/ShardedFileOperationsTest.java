@@ -0,0 +1,254 @@
+package mx.simio.apidemo.file;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import mx.simio.apidemo.reservation.Reservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedFileOperationsTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final Reservation first = new Reservation(1, "John Doe", 100, List.of(LocalDate.now()));
+  private final Reservation second = new Reservation(2, "Jane Smith", 101,
+      List.of(LocalDate.now()));
+  private final Reservation third = new Reservation(3, "Max Power", 102,
+      List.of(LocalDate.now().plusDays(1)));
+
+  @Test
+  void shouldReadWhatWasWrittenAcrossShards() throws IOException {
+    ShardedFileOperations sharded = open(4);
+
+    sharded.writeToFile(new HashSet<>(Set.of(first, second, third)));
+
+    assertEquals(Set.of(first, second, third), open(4).readFromFile());
+    assertEquals(4, manifest().size());
+    assertEquals(4, shardFiles().size());
+  }
+
+  @Test
+  void shouldAppendToTheLogOfTheShardOnly() throws IOException {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first, second, third)));
+    List<String> before = manifest();
+    long bytesBefore = sharded.getBytesWritten();
+
+    Reservation renamed = new Reservation(2, "Jane Doe", 101, List.of(LocalDate.now()));
+    sharded.appendToFile(renamed);
+
+    assertEquals(before, manifest());
+    Path log = tempDir.resolve(before.get(sharded.shardOf(renamed)) + ".log");
+    assertEquals(List.of(log), logFiles());
+    assertEquals(Files.size(log), sharded.getBytesWritten() - bytesBefore);
+    assertEquals(Set.of(first, renamed, third), open(4).readFromFile());
+  }
+
+  @Test
+  void shouldFoldALogIntoItsShardAtTheThreshold() throws IOException {
+    ShardedFileOperations sharded = open(4, 2);
+    sharded.writeToFile(new HashSet<>(Set.of(first, second, third)));
+    List<String> before = manifest();
+    int shard = sharded.shardOf(second);
+
+    Reservation renamed = new Reservation(2, "Jane Doe", 101, List.of(LocalDate.now()));
+    sharded.appendToFile(renamed);
+    sharded.appendToFile(second);
+
+    List<String> after = manifest();
+    for (int i = 0; i < 4; i++) {
+      assertEquals(i == shard, !before.get(i).equals(after.get(i)));
+    }
+    assertEquals(List.of(), logFiles());
+    assertEquals(4, shardFiles().size());
+    assertEquals(Set.of(first, second, third), open(4).readFromFile());
+  }
+
+  @Test
+  void shouldMoveAReservationToTheShardOfItsNewRoom() {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first, second)));
+
+    Reservation moved = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+    sharded.appendAllToFile(List.of(moved));
+
+    ShardedFileOperations reopened = open(4);
+    List<Reservation> read = new ArrayList<>();
+    reopened.readChunks(read::addAll);
+    assertEquals(2, read.size());
+    assertEquals(Set.of(first, moved), new HashSet<>(read));
+  }
+
+  @Test
+  void shouldMoveAReservationReadOnStartupToTheShardOfItsNewRoom() {
+    open(4).writeToFile(new HashSet<>(Set.of(first, second, third)));
+    ShardedFileOperations reopened = open(4);
+    reopened.readFromFile();
+
+    Reservation moved = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+    Reservation renamed = new Reservation(3, "Max Payne", 102,
+        List.of(LocalDate.now().plusDays(1)));
+    reopened.appendAllToFile(List.of(moved, renamed));
+
+    List<Reservation> read = new ArrayList<>();
+    open(4).readChunks(read::addAll);
+    assertEquals(3, read.size());
+    assertEquals(Set.of(first, moved, renamed), new HashSet<>(read));
+  }
+
+  @Test
+  void shouldAppendToDifferentShardsConcurrently() throws InterruptedException {
+    ShardedFileOperations sharded = open(4, 50);
+    sharded.writeToFile(new HashSet<>());
+    Set<Reservation> expected = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      int room = 100 + thread;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          Reservation reservation = new Reservation(room * 1000 + i, "Guest", room % 2 == 0
+              ? room : room + i % 3, List.of(LocalDate.now().plusDays(i)));
+          sharded.appendToFile(reservation);
+          expected.add(reservation);
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(800, expected.size());
+    assertEquals(expected, open(4).readFromFile());
+  }
+
+  @Test
+  void shouldKeepTheLatestCopyOfAReservationWhoseMoveWasInterrupted() throws IOException {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first, second)));
+    Path oldLog = tempDir.resolve(manifest().get(sharded.shardOf(second)) + ".log");
+
+    Reservation moved = new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()));
+    sharded.appendToFile(moved);
+    try (FileChannel channel = FileChannel.open(oldLog, StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+    }
+
+    ShardedFileOperations reopened = open(4, 1);
+    List<Reservation> read = new ArrayList<>();
+    reopened.readChunks(read::addAll);
+    assertEquals(List.of(moved), read.stream().filter(r -> r.getId() == 2).toList());
+
+    reopened.appendToFile(moved);
+    assertEquals(Set.of(first, moved), open(4).readFromFile());
+  }
+
+  @Test
+  void shouldDiscardATornRecordAtTheEndOfALog() throws IOException {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first)));
+    sharded.appendToFile(second);
+    Path log = logFiles().get(0);
+    long size = Files.size(log);
+    Files.write(log, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+    assertEquals(Set.of(first, second), open(4).readFromFile());
+    assertEquals(size, Files.size(log));
+  }
+
+  @Test
+  void shouldRejectNegativeIdsWithoutWriting() {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first)));
+
+    Reservation negative = new Reservation(-1, "John Doe", 100, List.of(LocalDate.now()));
+    assertThrows(IllegalArgumentException.class, () -> sharded.appendToFile(negative));
+
+    assertEquals(Set.of(first), open(4).readFromFile());
+  }
+
+  @Test
+  void shouldReplaceASingleSnapshotWithShards() throws IOException {
+    Path snapshot = tempDir.resolve("reservations.txt");
+    new FileUtilImpl(snapshot.toString()).writeToFile(new HashSet<>(Set.of(first, second)));
+    ShardedFileOperations sharded = open(4);
+
+    assertEquals(Set.of(first, second), sharded.readFromFile());
+    sharded.appendToFile(third);
+
+    assertFalse(Files.exists(snapshot));
+    assertEquals(4, shardFiles().size());
+    assertEquals(Set.of(first, second, third), open(4).readFromFile());
+  }
+
+  @Test
+  void shouldRewriteEveryShardWhenTheShardCountChanges() throws IOException {
+    ShardedFileOperations sharded = open(4);
+    sharded.writeToFile(new HashSet<>(Set.of(first, second, third)));
+    Reservation renamed = new Reservation(3, "Max Payne", 102,
+        List.of(LocalDate.now().plusDays(1)));
+    sharded.appendToFile(renamed);
+    ShardedFileOperations resharded = open(2);
+
+    assertEquals(Set.of(first, second, renamed), resharded.readFromFile());
+    resharded.appendToFile(first);
+
+    assertEquals(2, manifest().size());
+    assertEquals(2, shardFiles().size());
+    assertEquals(List.of(), logFiles());
+    assertEquals(Set.of(first, second, renamed), open(2).readFromFile());
+  }
+
+  @Test
+  void shouldDeleteShardFilesThatWereNeverCommitted() throws IOException {
+    open(4).writeToFile(new HashSet<>(Set.of(first)));
+    Path uncommitted = tempDir.resolve("reservations.txt.shard-0-of-4.99");
+    Files.write(uncommitted, new byte[]{1, 2, 3});
+
+    assertEquals(Set.of(first), open(4).readFromFile());
+    assertFalse(Files.exists(uncommitted));
+  }
+
+  private ShardedFileOperations open(int shards) {
+    return open(shards, 10000);
+  }
+
+  private ShardedFileOperations open(int shards, int compactionThreshold) {
+    return new ShardedFileOperations(tempDir.resolve("reservations.txt").toString(), shards,
+        compactionThreshold);
+  }
+
+  private List<String> manifest() throws IOException {
+    List<String> lines = Files.readAllLines(tempDir.resolve("reservations.txt.shards"),
+        StandardCharsets.UTF_8);
+    return lines.subList(1, lines.size());
+  }
+
+  private List<Path> shardFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(file -> file.getFileName().toString().contains(".shard-"))
+          .filter(file -> !file.getFileName().toString().endsWith(".log"))
+          .toList();
+    }
+  }
+
+  private List<Path> logFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(".log")).toList();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateRunsTest {
+
+  private static final LocalDate CHECK_IN = LocalDate.of(2026, 1, 1);
+
+  @Test
+  void shouldKeepAStayAsOneRun() {
+    List<LocalDate> stay = CHECK_IN.datesUntil(CHECK_IN.plusDays(14)).toList();
+
+    DateRuns runs = DateRuns.of(stay);
+
+    assertEquals(1, runs.runCount());
+    assertEquals(CHECK_IN.toEpochDay(), runs.runStart(0));
+    assertEquals(14, runs.runLength(0));
+    assertEquals(stay, runs);
+    assertEquals(stay.hashCode(), runs.hashCode());
+  }
+
+  @Test
+  void shouldKeepTheOrderAndRepeatsOfTheDates() {
+    List<LocalDate> dates = List.of(CHECK_IN.plusDays(5), CHECK_IN.plusDays(6), CHECK_IN,
+        CHECK_IN, CHECK_IN.plusDays(1));
+
+    DateRuns runs = DateRuns.of(dates);
+
+    assertEquals(3, runs.runCount());
+    assertEquals(dates, runs);
+    assertEquals(dates, new ArrayList<>(runs));
+    assertEquals(CHECK_IN, runs.get(2));
+    assertEquals(CHECK_IN.plusDays(1), runs.get(4));
+    assertThrows(IndexOutOfBoundsException.class, () -> runs.get(5));
+  }
+
+  @Test
+  void shouldMergeAdjacentRuns() {
+    DateRuns built = new DateRuns.Builder()
+        .add(CHECK_IN.toEpochDay(), 2)
+        .add(CHECK_IN.toEpochDay() + 2, 3)
+        .build();
+
+    assertEquals(1, built.runCount());
+    assertEquals(DateRuns.of(CHECK_IN.datesUntil(CHECK_IN.plusDays(5)).toList()), built);
+  }
+
+  @Test
+  void shouldReturnNullAndRunsAsTheyAre() {
+    DateRuns runs = DateRuns.of(List.of(CHECK_IN));
+
+    assertNull(DateRuns.of(null));
+    assertSame(runs, DateRuns.of(runs));
+    assertTrue(DateRuns.of(List.of()).isEmpty());
+  }
+
+  @Test
+  void shouldRejectNullDates() {
+    assertThrows(NullPointerException.class,
+        () -> DateRuns.of(Arrays.asList(CHECK_IN, null)));
+  }
+
+  @Test
+  void shouldBeImmutable() {
+    DateRuns runs = DateRuns.of(List.of(CHECK_IN));
+
+    assertThrows(UnsupportedOperationException.class, () -> runs.add(CHECK_IN));
+  }
+}
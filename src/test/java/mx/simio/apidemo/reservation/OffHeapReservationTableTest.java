@@ -0,0 +1,103 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapReservationTableTest {
+
+  private final OffHeapReservationTable table = new OffHeapReservationTable(1024);
+
+  @Test
+  void shouldReadWhatWasStored() {
+    Reservation reservation = new Reservation(7, "Jos\u00e9 M\u00fcller", 101,
+        List.of(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 2)));
+
+    assertNull(table.put(reservation));
+
+    assertEquals(reservation, table.get(7));
+    assertNull(table.get(8));
+    assertNull(table.get(-1));
+  }
+
+  @Test
+  void shouldKeepNullFields() {
+    Reservation empty = new Reservation(1, null, null, null);
+    Reservation noDates = new Reservation(2, "", 101, List.of());
+    table.put(empty);
+    table.put(noDates);
+
+    assertEquals(empty, table.get(1));
+    assertEquals(noDates, table.get(2));
+  }
+
+  @Test
+  void shouldKeepDatesThatAreNotConsecutive() {
+    List<LocalDate> dates = List.of(LocalDate.of(2026, 1, 3), LocalDate.of(2026, 1, 4),
+        LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 1), LocalDate.of(2026, 2, 1));
+    table.put(new Reservation(1, "John Doe", 101, dates));
+
+    assertEquals(dates, table.get(1).getReservationDates());
+  }
+
+  @Test
+  void shouldReturnTheReplacedReservation() {
+    Reservation first = new Reservation(1, "John Doe", 101, List.of(LocalDate.now()));
+    Reservation moved = new Reservation(1, "John Doe", 102, List.of(LocalDate.now()));
+    table.put(first);
+
+    assertEquals(first, table.put(moved));
+    assertEquals(moved, table.get(1));
+    assertEquals(1, table.values().size());
+  }
+
+  @Test
+  void shouldStreamInIdOrderAcrossPages() {
+    int[] ids = {OffHeapReservationTable.PAGE_SIZE * 3 + 1, 5, OffHeapReservationTable.PAGE_SIZE};
+    for (int id : ids) {
+      table.put(new Reservation(id, "Guest " + id, 100, List.of(LocalDate.now())));
+    }
+
+    assertEquals(List.of(5, OffHeapReservationTable.PAGE_SIZE,
+            OffHeapReservationTable.PAGE_SIZE * 3 + 1),
+        table.stream(null).map(Reservation::getId).toList());
+    assertEquals(List.of(OffHeapReservationTable.PAGE_SIZE * 3 + 1),
+        table.stream(OffHeapReservationTable.PAGE_SIZE).map(Reservation::getId).toList());
+    assertEquals(3, new ArrayList<>(table.values()).size());
+  }
+
+  @Test
+  void shouldCompactReplacedRecords() {
+    for (int round = 0; round < 100; round++) {
+      for (int id = 1; id <= 10; id++) {
+        table.put(new Reservation(id, "Guest " + round, 100 + id, List.of(LocalDate.now())));
+      }
+    }
+
+    assertTrue(table.allocatedBytes() <= 2 * 1024, "allocated " + table.allocatedBytes());
+    for (int id = 1; id <= 10; id++) {
+      assertEquals(new Reservation(id, "Guest 99", 100 + id, List.of(LocalDate.now())),
+          table.get(id));
+    }
+  }
+
+  @Test
+  void shouldStoreRecordsLargerThanASlab() {
+    List<LocalDate> dates = LocalDate.of(2026, 1, 1).datesUntil(LocalDate.of(2026, 12, 31))
+        .toList();
+    Reservation longStay = new Reservation(1, "John Doe", 101, dates);
+
+    table.put(longStay);
+
+    assertEquals(longStay, table.get(1));
+  }
+
+  @Test
+  void shouldRejectNegativeIds() {
+    assertThrows(IllegalArgumentException.class,
+        () -> table.put(new Reservation(-1, "John Doe", 101, List.of(LocalDate.now()))));
+  }
+}
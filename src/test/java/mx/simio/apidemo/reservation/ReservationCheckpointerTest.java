@@ -0,0 +1,169 @@
+package mx.simio.apidemo.reservation;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import mx.simio.apidemo.exception.ServiceException;
+import mx.simio.apidemo.file.FileOperations;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationCheckpointerTest {
+
+  private final ReservationStore store = new ReservationStore();
+  private final RecordingFileOperations fileOperations = new RecordingFileOperations(true);
+
+  @Test
+  void shouldWriteOnlyReservationsChangedSinceLastCheckpoint() {
+    ReservationCheckpointer checkpointer = checkpointer(fileOperations, 10);
+    Reservation first = store(checkpointer, 1, 101);
+    Reservation second = store(checkpointer, 2, 102);
+
+    checkpointer.checkpoint();
+    Reservation updated = store(checkpointer, 1, 103);
+    checkpointer.checkpoint();
+
+    assertEquals(List.of(Set.of(first, second), Set.of(updated)), fileOperations.appended);
+    assertTrue(fileOperations.snapshots.isEmpty());
+    assertEquals(2, checkpointer.getCheckpointCount());
+    assertEquals(0, checkpointer.getPendingCount());
+  }
+
+  @Test
+  void shouldSkipCheckpointWhenNothingChanged() {
+    ReservationCheckpointer checkpointer = checkpointer(fileOperations, 2);
+
+    checkpointer.checkpoint();
+    checkpointer.checkpoint();
+
+    assertTrue(fileOperations.appended.isEmpty());
+    assertTrue(fileOperations.snapshots.isEmpty());
+    assertEquals(0, checkpointer.getCheckpointCount());
+  }
+
+  @Test
+  void shouldWriteFullSnapshotPeriodically() {
+    ReservationCheckpointer checkpointer = checkpointer(fileOperations, 2);
+    Reservation first = store(checkpointer, 1, 101);
+    checkpointer.checkpoint();
+    Reservation second = store(checkpointer, 2, 102);
+    checkpointer.checkpoint();
+    checkpointer.checkpoint();
+
+    assertEquals(List.of(Set.of(first)), fileOperations.appended);
+    assertEquals(List.of(Set.of(first, second)), fileOperations.snapshots);
+  }
+
+  @Test
+  void shouldWriteFullSnapshotWhenBackendCannotAppend() {
+    RecordingFileOperations snapshotOnly = new RecordingFileOperations(false);
+    ReservationCheckpointer checkpointer = checkpointer(snapshotOnly, 10);
+    Reservation reservation = store(checkpointer, 1, 101);
+
+    checkpointer.checkpoint();
+
+    assertTrue(snapshotOnly.appended.isEmpty());
+    assertEquals(List.of(Set.of(reservation)), snapshotOnly.snapshots);
+  }
+
+  @Test
+  void shouldKeepReservationsDirtyWhenCheckpointFails() {
+    ReservationCheckpointer checkpointer = checkpointer(fileOperations, 10);
+    Reservation reservation = store(checkpointer, 1, 101);
+    fileOperations.failing = true;
+
+    assertThrows(ServiceException.class, checkpointer::checkpoint);
+    fileOperations.failing = false;
+    checkpointer.checkpoint();
+
+    assertEquals(List.of(Set.of(reservation)), fileOperations.appended);
+    assertEquals(1, checkpointer.getFailureCount());
+    assertEquals(1, checkpointer.getCheckpointCount());
+  }
+
+  @Test
+  void shouldRecordBytesWrittenAndDuration() {
+    ReservationCheckpointer checkpointer = checkpointer(fileOperations, 10);
+    store(checkpointer, 1, 101);
+    store(checkpointer, 2, 102);
+
+    checkpointer.checkpoint();
+
+    assertEquals(2 * RecordingFileOperations.BYTES_PER_RESERVATION,
+        checkpointer.getBytesWritten());
+    assertFalse(checkpointer.getTotalDuration().isNegative());
+    assertEquals(checkpointer.getLastDuration(), checkpointer.getTotalDuration());
+  }
+
+  @Test
+  void shouldRejectNonPositiveInterval() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new ReservationCheckpointer(store, fileOperations, Duration.ZERO, 10));
+  }
+
+  private ReservationCheckpointer checkpointer(FileOperations fileOperations,
+      int fullSnapshotEvery) {
+    return new ReservationCheckpointer(store, fileOperations, Duration.ofHours(1),
+        fullSnapshotEvery);
+  }
+
+  private Reservation store(ReservationCheckpointer checkpointer, int id, int roomNumber) {
+    Reservation reservation = new Reservation(id, "Guest " + id, roomNumber,
+        List.of(LocalDate.of(2026, 1, id)));
+    try (var ignored = store.lockRooms(roomNumber)) {
+      store.put(reservation);
+    }
+    checkpointer.markDirty(id);
+    return reservation;
+  }
+
+  private static class RecordingFileOperations implements FileOperations {
+
+    static final long BYTES_PER_RESERVATION = 10;
+
+    private final boolean supportsAppend;
+    private final List<Set<Reservation>> appended = new ArrayList<>();
+    private final List<Set<Reservation>> snapshots = new ArrayList<>();
+    private long bytesWritten;
+    private boolean failing;
+
+    RecordingFileOperations(boolean supportsAppend) {
+      this.supportsAppend = supportsAppend;
+    }
+
+    @Override
+    public void writeToFile(Set<Reservation> reservations) {
+      snapshots.add(Set.copyOf(reservations));
+      bytesWritten += reservations.size() * BYTES_PER_RESERVATION;
+    }
+
+    @Override
+    public Set<Reservation> readFromFile() {
+      return new HashSet<>();
+    }
+
+    @Override
+    public void appendAllToFile(Collection<Reservation> reservations) {
+      if (failing) {
+        throw new ServiceException("Disk full");
+      }
+      appended.add(Set.copyOf(reservations));
+      bytesWritten += reservations.size() * BYTES_PER_RESERVATION;
+    }
+
+    @Override
+    public boolean supportsAppend() {
+      return supportsAppend;
+    }
+
+    @Override
+    public long getBytesWritten() {
+      return bytesWritten;
+    }
+  }
+}
@@ -2,18 +2,30 @@ package mx.simio.apidemo.reservation;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import mx.simio.apidemo.exception.ConflictException;
+import mx.simio.apidemo.exception.GlobalExceptionHandler;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,7 +36,12 @@ class ReservationControllerTest {
   @Mock
   private ReservationService reservationService;
 
-  @InjectMocks
+  @Spy
+  private ObjectMapper controllerObjectMapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule());
+
+  private AsyncReservationService asyncReservationService;
+  private ReservationListCache reservationListCache;
   private ReservationController reservationController;
 
   private MockMvc mockMvc;
@@ -32,7 +49,13 @@ class ReservationControllerTest {
 
   @BeforeEach
   void setUp() {
-    mockMvc = MockMvcBuilders.standaloneSetup(reservationController).build();
+    asyncReservationService = new AsyncReservationService(reservationService, 1, 1);
+    reservationListCache = new ReservationListCache(reservationService, controllerObjectMapper);
+    reservationController = new ReservationController(reservationService, controllerObjectMapper,
+        reservationListCache, asyncReservationService);
+    mockMvc = MockMvcBuilders.standaloneSetup(reservationController)
+        .setControllerAdvice(new GlobalExceptionHandler())
+        .build();
     objectMapper = new ObjectMapper();
     objectMapper.registerModule(new JavaTimeModule());
   }
@@ -54,6 +77,82 @@ class ReservationControllerTest {
     verify(reservationService, times(1)).createReservation(any(ReservationRequest.class));
   }
 
+  @AfterEach
+  void tearDown() {
+    asyncReservationService.shutdown();
+  }
+
+  @Test
+  void createReservationAsync_success() throws Exception {
+    ReservationResponse response = new ReservationResponse(1, "John Doe", 101,
+        List.of(LocalDate.now()));
+
+    when(reservationService.createReservation(any(ReservationRequest.class))).thenReturn(response);
+
+    MvcResult result = mockMvc.perform(post("/api/v1/reservations/async")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new ReservationRequest())))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).createReservation(any(ReservationRequest.class));
+  }
+
+  @Test
+  void createReservationAsync_serviceUnavailableWhenQueueIsFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ReservationResponse response = new ReservationResponse(1, "John Doe", 101,
+        List.of(LocalDate.now()));
+
+    when(reservationService.createReservation(any(ReservationRequest.class))).thenAnswer(
+        invocation -> {
+          release.await(10, TimeUnit.SECONDS);
+          return response;
+        });
+
+    String body = objectMapper.writeValueAsString(new ReservationRequest());
+    MvcResult running = mockMvc.perform(post("/api/v1/reservations/async")
+            .contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult queued = mockMvc.perform(post("/api/v1/reservations/async")
+            .contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(post("/api/v1/reservations/async")
+            .contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"));
+
+    release.countDown();
+    mockMvc.perform(asyncDispatch(running)).andExpect(status().isOk());
+    mockMvc.perform(asyncDispatch(queued)).andExpect(status().isOk());
+  }
+
+  @Test
+  void createReservations_success() throws Exception {
+    List<ReservationRequest> requests = List.of(new ReservationRequest(),
+        new ReservationRequest());
+    List<BatchItemResponse> results = List.of(
+        new BatchItemResponse(0, 200, new ReservationResponse(1, "John Doe", 101,
+            List.of(LocalDate.now())), null),
+        new BatchItemResponse(1, 400, null,
+            Map.of("clientFullName", "Client full name cannot be blank")));
+
+    when(reservationService.createReservations(anyList())).thenReturn(results);
+
+    mockMvc.perform(post("/api/v1/reservations/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(requests)))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(results)));
+
+    verify(reservationService, times(1)).createReservations(anyList());
+  }
+
   @Test
   void getAllReservations_success() throws Exception {
     ReservationResponse response1 = new ReservationResponse(1, "John Doe", 101,
@@ -72,6 +171,185 @@ class ReservationControllerTest {
     verify(reservationService, times(1)).getAllReservations();
   }
 
+  @Test
+  void getAllReservations_notModified() throws Exception {
+    List<ReservationResponse> responses = List.of(new ReservationResponse(1, "John Doe", 101,
+        List.of(LocalDate.now())));
+    when(reservationService.getVersion()).thenReturn(7L);
+    when(reservationService.getAllReservations()).thenReturn(responses);
+
+    String eTag = mockMvc.perform(get("/api/v1/reservations"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andReturn().getResponse().getHeader("ETag");
+    mockMvc.perform(get("/api/v1/reservations"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", eTag))
+        .andExpect(content().json(objectMapper.writeValueAsString(responses)));
+    mockMvc.perform(get("/api/v1/reservations").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    when(reservationService.getVersion()).thenReturn(8L);
+    mockMvc.perform(get("/api/v1/reservations").header("If-None-Match", eTag))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", not(eTag)));
+
+    verify(reservationService, times(2)).getAllReservations();
+  }
+
+  @Test
+  void getAllReservations_timesEveryListRequest() throws Exception {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    reservationListCache.bindTo(registry);
+    when(reservationService.getAllReservations()).thenReturn(List.of());
+
+    String eTag = mockMvc.perform(get("/api/v1/reservations"))
+        .andReturn().getResponse().getHeader("ETag");
+    mockMvc.perform(get("/api/v1/reservations"))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/v1/reservations").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    assertEquals(3, registry.get("reservation.operation.duration")
+        .tag("operation", "list").timer().count());
+    verify(reservationService, times(1)).getAllReservations();
+  }
+
+  @Test
+  void exportReservations_success() throws Exception {
+    ReservationResponse response1 = new ReservationResponse(1, "John Doe", 101,
+        List.of(LocalDate.now()));
+    ReservationResponse response2 = new ReservationResponse(2, "Jane Smith", 102,
+        List.of(LocalDate.now().plusDays(1)));
+
+    when(reservationService.streamReservations()).thenReturn(Stream.of(response1, response2));
+
+    MvcResult result = mockMvc.perform(get("/api/v1/reservations/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string(objectMapper.writeValueAsString(response1) + "\n"
+            + objectMapper.writeValueAsString(response2) + "\n"));
+
+    verify(reservationService, times(1)).streamReservations();
+  }
+
+  @Test
+  void getAvailability_success() throws Exception {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    LocalDate to = from.plusDays(1);
+    AvailabilityResponse response = new AvailabilityResponse(101, from, to, List.of(to),
+        List.of(from));
+
+    when(reservationService.getAvailability(101, from, to)).thenReturn(response);
+
+    mockMvc.perform(get("/api/v1/reservations/availability")
+            .param("room", "101")
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).getAvailability(101, from, to);
+  }
+
+  @Test
+  void getOccupancy_success() throws Exception {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    OccupancyResponse response = OccupancyResponse.builder()
+        .from(from)
+        .to(from)
+        .rooms(2)
+        .roomNights(1L)
+        .days(List.of(DailyOccupancy.builder().date(from).bookedRooms(1).occupancyRate(0.5)
+            .build()))
+        .build();
+
+    when(reservationService.getOccupancy(from, from)).thenReturn(response);
+
+    mockMvc.perform(get("/api/v1/reservations/occupancy")
+            .param("from", from.toString())
+            .param("to", from.toString()))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).getOccupancy(from, from);
+  }
+
+  @Test
+  void findReservations_success() throws Exception {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    LocalDate to = from.plusDays(1);
+    List<ReservationResponse> response = List.of(
+        new ReservationResponse(1, "John Doe", 101, List.of(from)));
+
+    when(reservationService.findReservations(101, from, to)).thenReturn(response);
+
+    mockMvc.perform(get("/api/v1/reservations")
+            .param("room", "101")
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).findReservations(101, from, to);
+    verify(reservationService, never()).getAllReservations();
+  }
+
+  @Test
+  void searchReservations_success() throws Exception {
+    List<ReservationResponse> response = List.of(
+        new ReservationResponse(1, "John Smith", 101, List.of(LocalDate.now())));
+
+    when(reservationService.searchReservations("smi", true, 10)).thenReturn(response);
+
+    mockMvc.perform(get("/api/v1/reservations/search")
+            .param("name", "smi")
+            .param("match", "substring")
+            .param("limit", "10"))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).searchReservations("smi", true, 10);
+  }
+
+  @Test
+  void getReservation_success() throws Exception {
+    Integer id = 1;
+    ReservationResponse response = new ReservationResponse(id, "John Doe", 101,
+        List.of(LocalDate.now()));
+
+    when(reservationService.getReservation(id)).thenReturn(response);
+
+    mockMvc.perform(get("/api/v1/reservations/{id}", id))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(response)));
+
+    verify(reservationService, times(1)).getReservation(id);
+  }
+
+  @Test
+  void getReservationPage_success() throws Exception {
+    ReservationResponse response = new ReservationResponse(3, "John Doe", 101,
+        List.of(LocalDate.now()));
+    ReservationPage page = new ReservationPage(List.of(response), 3);
+
+    when(reservationService.getReservationPage(1, 2)).thenReturn(page);
+
+    mockMvc.perform(get("/api/v1/reservations")
+            .param("limit", "1")
+            .param("after", "2"))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(page)));
+
+    verify(reservationService, times(1)).getReservationPage(1, 2);
+    verify(reservationService, never()).getAllReservations();
+  }
+
   @Test
   void updateReservation_success() throws Exception {
     Integer id = 1;
@@ -90,4 +368,18 @@ class ReservationControllerTest {
 
     verify(reservationService, times(1)).updateReservation(eq(id), any(ReservationRequest.class));
   }
-}
\ No newline at end of file
+
+  @Test
+  void updateReservationAsync_conflict() throws Exception {
+    when(reservationService.updateReservation(eq(1), any(ReservationRequest.class))).thenThrow(
+        new ConflictException("Room 101 is already booked on " + LocalDate.now()));
+
+    MvcResult result = mockMvc.perform(put("/api/v1/reservations/{id}/async", 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new ReservationRequest())))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isConflict());
+  }
+}
@@ -0,0 +1,223 @@
+package mx.simio.apidemo.reservation;
+
+import jakarta.validation.Validation;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import mx.simio.apidemo.exception.ConflictException;
+import mx.simio.apidemo.file.FileOperations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests that hammer {@link ReservationService} from many threads and then check that the
+ * store and the availability index still agree with each other.
+ */
+class ReservationServiceConcurrencyTest {
+
+  private static final int THREADS = 16;
+  private static final LocalDate FIRST_NIGHT = LocalDate.of(2026, 1, 1);
+
+  private final AtomicInteger appendedRecords = new AtomicInteger();
+  private ReservationService reservationService;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    reservationService = new ReservationService(new FileOperations() {
+      @Override
+      public void writeToFile(Set<Reservation> reservations) {
+      }
+
+      @Override
+      public Set<Reservation> readFromFile() {
+        return new HashSet<>();
+      }
+
+      @Override
+      public void appendToFile(Reservation reservation) {
+        appendedRecords.incrementAndGet();
+      }
+    }, Validation.buildDefaultValidatorFactory().getValidator());
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentCreatesBookEveryNightExactlyOnce() throws Exception {
+    int rooms = 4;
+    int nights = 100;
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger conflicts = new AtomicInteger();
+
+    runConcurrently(thread -> {
+      for (int night = 0; night < nights; night++) {
+        for (int room = 0; room < rooms; room++) {
+          try {
+            reservationService.createReservation(
+                request("Guest " + thread, 101 + room, List.of(FIRST_NIGHT.plusDays(night))));
+            created.incrementAndGet();
+          } catch (ConflictException e) {
+            conflicts.incrementAndGet();
+          }
+        }
+      }
+    });
+
+    assertEquals(rooms * nights, created.get());
+    assertEquals((THREADS - 1) * rooms * nights, conflicts.get());
+    assertEquals(rooms * nights, reservationService.getAllReservations().size());
+    assertEquals(rooms * nights, appendedRecords.get());
+    assertStoreMatchesAvailabilityIndex(101, 101 + rooms, nights);
+  }
+
+  @Test
+  void concurrentUpdatesNeverLoseOrDuplicateBookings() throws Exception {
+    int rooms = 8;
+    int nights = 30;
+    List<Integer> ids = new ArrayList<>();
+    for (int room = 0; room < rooms; room++) {
+      ids.add(reservationService.createReservation(
+          request("Guest " + room, 101 + room, List.of(FIRST_NIGHT))).getId());
+    }
+
+    runConcurrently(thread -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < 2_000; i++) {
+        Integer id = ids.get(random.nextInt(ids.size()));
+        LocalDate checkIn = FIRST_NIGHT.plusDays(random.nextInt(nights - 2));
+        try {
+          reservationService.updateReservation(id, request("Guest " + thread,
+              101 + random.nextInt(rooms), List.of(checkIn, checkIn.plusDays(1))));
+        } catch (ConflictException e) {
+          // Another reservation holds one of the nights, the update is rejected as a whole.
+        }
+      }
+    });
+
+    assertEquals(rooms, reservationService.getAllReservations().size());
+    assertStoreMatchesAvailabilityIndex(101, 101 + rooms, nights);
+  }
+
+  @Test
+  void readsNeverFailWhileWritesAreInFlight() throws Exception {
+    AtomicBoolean writing = new AtomicBoolean(true);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int reader = 0; reader < THREADS / 2; reader++) {
+      readers.add(executor.submit(() -> {
+        while (writing.get()) {
+          List<ReservationResponse> all = reservationService.getAllReservations();
+          for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId());
+          }
+          reservationService.getReservationPage(50, null);
+          reservationService.streamReservations().count();
+        }
+        return null;
+      }));
+    }
+
+    ExecutorService writers = Executors.newFixedThreadPool(THREADS / 2);
+    try {
+      List<Future<?>> writes = new ArrayList<>();
+      for (int writer = 0; writer < THREADS / 2; writer++) {
+        int room = 201 + writer;
+        writes.add(writers.submit(() -> {
+          for (int night = 0; night < 500; night++) {
+            reservationService.createReservation(
+                request("Guest", room, List.of(FIRST_NIGHT.plusDays(night))));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> write : writes) {
+        write.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      writing.set(false);
+      writers.shutdownNow();
+    }
+    for (Future<?> reader : readers) {
+      reader.get(30, TimeUnit.SECONDS);
+    }
+
+    assertEquals(THREADS / 2 * 500, reservationService.getAllReservations().size());
+  }
+
+  /**
+   * Checks that every booked night of every room belongs to exactly one stored reservation and
+   * that the availability index reports exactly those nights.
+   */
+  private void assertStoreMatchesAvailabilityIndex(int firstRoom, int lastRoomExclusive,
+      int nights) {
+    Map<Integer, Set<LocalDate>> storedNights = new HashMap<>();
+    for (ReservationResponse reservation : reservationService.getAllReservations()) {
+      Set<LocalDate> roomNights = storedNights.computeIfAbsent(reservation.getRoomNumber(),
+          room -> new HashSet<>());
+      for (LocalDate date : reservation.getReservationDates()) {
+        assertTrue(roomNights.add(date),
+            "Room " + reservation.getRoomNumber() + " is double booked on " + date);
+      }
+    }
+
+    for (int room = firstRoom; room < lastRoomExclusive; room++) {
+      AvailabilityResponse availability = reservationService.getAvailability(room, FIRST_NIGHT,
+          FIRST_NIGHT.plusDays(nights - 1L));
+      assertEquals(storedNights.getOrDefault(room, Set.of()),
+          new HashSet<>(availability.getBookedDates()), "Index out of sync for room " + room);
+    }
+  }
+
+  private void runConcurrently(ThreadTask task) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int thread = 0; thread < THREADS; thread++) {
+      int threadNumber = thread;
+      Callable<Void> callable = () -> {
+        start.await();
+        task.run(threadNumber);
+        return null;
+      };
+      futures.add(executor.submit(callable));
+    }
+    start.countDown();
+    for (Future<Void> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+  }
+
+  private static ReservationRequest request(String clientFullName, Integer roomNumber,
+      List<LocalDate> reservationDates) {
+    ReservationRequest reservationRequest = new ReservationRequest();
+    reservationRequest.setClientFullName(clientFullName);
+    reservationRequest.setRoomNumber(roomNumber);
+    reservationRequest.setReservationDates(reservationDates);
+    return reservationRequest;
+  }
+
+  @FunctionalInterface
+  private interface ThreadTask {
+
+    void run(int thread) throws Exception;
+  }
+}
@@ -1,13 +1,29 @@
 package mx.simio.apidemo.reservation;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import mx.simio.apidemo.exception.BadRequestException;
+import mx.simio.apidemo.exception.ConflictException;
 import mx.simio.apidemo.exception.NotFoundException;
 import mx.simio.apidemo.exception.ServiceException;
 import mx.simio.apidemo.file.FileOperations;
+import mx.simio.apidemo.file.IdAllocator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -22,12 +38,15 @@ class ReservationServiceTest {
   @Mock
   private FileOperations fileOperations;
 
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
   private ReservationService reservationService;
 
   @BeforeEach
   void setup() {
     MockitoAnnotations.openMocks(this);
-    reservationService = new ReservationService(fileOperations);
+    doCallRealMethod().when(fileOperations).readChunks(any());
+    reservationService = new ReservationService(fileOperations, validator);
   }
 
   @Test
@@ -41,6 +60,20 @@ class ReservationServiceTest {
     verify(fileOperations, times(1)).readFromFile();
   }
 
+  @Test
+  void testLoadData_NewIdsFollowLoadedIds() {
+    Set<Reservation> testData = new HashSet<>();
+    testData.add(new Reservation(41, "John Doe", 101, List.of(LocalDate.now())));
+    testData.add(new Reservation(7, "Jane Smith", 102, List.of(LocalDate.now())));
+    when(fileOperations.readFromFile()).thenReturn(testData);
+
+    reservationService.loadData();
+    ReservationResponse created = reservationService.createReservation(
+        request("Max Power", 103, List.of(LocalDate.now())));
+
+    assertEquals(42, created.getId());
+  }
+
   @Test
   void testLoadData_ExceptionThrown() {
     when(fileOperations.readFromFile()).thenThrow(new ServiceException("File read error"));
@@ -93,6 +126,447 @@ class ReservationServiceTest {
     assertEquals(reservationRequest.getRoomNumber(), createdReservation.getRoomNumber());
     assertEquals(reservationRequest.getReservationDates(),
         createdReservation.getReservationDates());
+    verify(fileOperations).appendToFile(argThat(
+        reservation -> reservation.getId().equals(createdReservation.getId())));
+  }
+
+  @Test
+  void testCreateReservation_RoomAlreadyBooked() {
+    LocalDate date = LocalDate.now();
+    reservationService.createReservation(request("John Doe", 101, List.of(date)));
+
+    ConflictException exception = assertThrows(ConflictException.class,
+        () -> reservationService.createReservation(
+            request("Jane Smith", 101, List.of(date.minusDays(1), date))));
+
+    assertEquals("Room 101 is already booked on " + date, exception.getMessage());
+    verify(fileOperations, times(1)).appendToFile(any());
+  }
+
+  @Test
+  void testCreateReservation_ConflictInsideAStay() {
+    LocalDate checkIn = LocalDate.now();
+    reservationService.createReservation(request("John Doe", 101,
+        checkIn.datesUntil(checkIn.plusDays(10)).toList()));
+
+    ConflictException exception = assertThrows(ConflictException.class,
+        () -> reservationService.createReservation(request("Jane Smith", 101,
+            List.of(checkIn.plusDays(20), checkIn.plusDays(7), checkIn.plusDays(8)))));
+
+    assertEquals("Room 101 is already booked on " + checkIn.plusDays(7), exception.getMessage());
+    assertDoesNotThrow(() -> reservationService.createReservation(request("Jane Smith", 101,
+        checkIn.plusDays(10).datesUntil(checkIn.plusDays(14)).toList())));
+  }
+
+  @Test
+  void testCreateReservations_NullDate() {
+    List<LocalDate> dates = new ArrayList<>();
+    dates.add(null);
+
+    List<BatchItemResponse> results = reservationService.createReservations(
+        List.of(request("John Doe", 101, dates)));
+
+    assertEquals(400, results.get(0).getStatus());
+    assertEquals(List.of("Reservation dates cannot contain null"),
+        List.copyOf(results.get(0).getErrors().values()));
+  }
+
+  @Test
+  void testCreateReservations_UnsupportedDateInLastItem() {
+    LocalDate date = LocalDate.now();
+
+    List<BatchItemResponse> results = reservationService.createReservations(List.of(
+        request("John Doe", 101, List.of(date)),
+        request("Jane Smith", 102, List.of(date)),
+        request("Max Power", 103, List.of(date, LocalDate.of(1969, 12, 31)))));
+
+    assertEquals(List.of(200, 200, 400),
+        results.stream().map(BatchItemResponse::getStatus).toList());
+    assertTrue(results.get(2).getErrors().containsKey("reservationDates"));
+    assertEquals(2, reservationService.getAllReservations().size());
+    assertEquals(List.of(date), reservationService.getAvailability(101, date, date)
+        .getBookedDates());
+    assertTrue(reservationService.getAvailability(103, date, date).getBookedDates().isEmpty());
+    verify(fileOperations).appendAllToFile(argThat(reservations -> reservations.size() == 2));
+  }
+
+  @Test
+  void testCreateReservation_InvalidRequest() {
+    List<LocalDate> nullDate = new ArrayList<>();
+    nullDate.add(null);
+
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> reservationService.createReservation(request("John Doe", 101, nullDate)));
+    assertEquals("Reservation dates cannot contain null", e.getMessage());
+    LocalDate date = LocalDate.now();
+    e = assertThrows(BadRequestException.class, () -> reservationService.createReservation(
+        request("John Doe", 101, List.of(date, date))));
+    assertEquals("Reservation dates cannot contain " + date + " twice", e.getMessage());
+    assertThrows(BadRequestException.class, () -> reservationService.createReservation(
+        request(null, 101, List.of(LocalDate.now()))));
+    assertThrows(BadRequestException.class, () -> reservationService.createReservation(
+        request("John Doe", null, List.of(LocalDate.now()))));
+
+    assertTrue(reservationService.getAllReservations().isEmpty());
+    verify(fileOperations, never()).appendToFile(any());
+  }
+
+  @Test
+  void testUpdateReservation_InvalidRequest() {
+    LocalDate date = LocalDate.now();
+    ReservationResponse created = reservationService.createReservation(
+        request("John Doe", 101, List.of(date)));
+    List<LocalDate> nullDate = new ArrayList<>();
+    nullDate.add(null);
+
+    assertThrows(BadRequestException.class, () -> reservationService.updateReservation(
+        created.getId(), request("John Doe", 101, nullDate)));
+    assertThrows(BadRequestException.class, () -> reservationService.updateReservation(
+        created.getId(), request(" ", 101, List.of(date))));
+    assertThrows(BadRequestException.class, () -> reservationService.updateReservation(
+        created.getId(), request("John Doe", null, List.of(date))));
+
+    assertEquals(List.of(date), reservationService.getReservation(created.getId())
+        .getReservationDates());
+    verify(fileOperations, times(1)).appendToFile(any());
+  }
+
+  @Test
+  void testCreateReservation_BeyondBookingHorizon() {
+    LocalDate tooFar = LocalDate.now().plusYears(5).plusDays(1);
+
+    assertThrows(BadRequestException.class, () -> reservationService.createReservation(
+        request("John Doe", 101, List.of(LocalDate.now(), tooFar))));
+    assertThrows(BadRequestException.class, () -> reservationService.createReservation(
+        request("John Doe", 101, List.of(LocalDate.of(9999, 12, 31)))));
+
+    assertTrue(reservationService.getAllReservations().isEmpty());
+    verify(fileOperations, never()).appendToFile(any());
+    reservationService.createReservation(
+        request("John Doe", 101, List.of(LocalDate.now().plusYears(5))));
+  }
+
+  @Test
+  void testUpdateReservation_BeyondBookingHorizon() {
+    LocalDate date = LocalDate.now();
+    ReservationResponse created = reservationService.createReservation(
+        request("John Doe", 101, List.of(date)));
+
+    assertThrows(BadRequestException.class, () -> reservationService.updateReservation(
+        created.getId(), request("John Doe", 101, List.of(date.plusYears(6)))));
+
+    assertEquals(List.of(date), reservationService.getReservation(created.getId())
+        .getReservationDates());
+  }
+
+  @Test
+  void testCreateReservation_SameDatesInAnotherRoom() {
+    LocalDate date = LocalDate.now();
+    reservationService.createReservation(request("John Doe", 101, List.of(date)));
+
+    ReservationResponse createdReservation = reservationService.createReservation(
+        request("Jane Smith", 102, List.of(date)));
+
+    assertEquals(102, createdReservation.getRoomNumber());
+  }
+
+  @Test
+  void testCreateReservation_ReleasesDatesWhenPersistenceFails() {
+    LocalDate date = LocalDate.now();
+    doThrow(new ServiceException("Error appending to journal"))
+        .doNothing()
+        .when(fileOperations).appendToFile(any());
+
+    assertThrows(ServiceException.class,
+        () -> reservationService.createReservation(request("John Doe", 101, List.of(date))));
+
+    assertDoesNotThrow(
+        () -> reservationService.createReservation(request("Jane Smith", 101, List.of(date))));
+  }
+
+  @Test
+  void testCreateReservations() {
+    LocalDate date = LocalDate.now();
+    reservationService.createReservation(request("John Doe", 101, List.of(date)));
+    clearInvocations(fileOperations);
+
+    List<BatchItemResponse> results = reservationService.createReservations(List.of(
+        request("Jane Smith", 102, List.of(date)),
+        request("", 103, List.of(date)),
+        request("Max Power", 101, List.of(date)),
+        request("Ann Lee", 102, List.of(date)),
+        request("Bob Ray", 104, List.of(date))));
+
+    assertEquals(List.of(200, 400, 409, 409, 200),
+        results.stream().map(BatchItemResponse::getStatus).toList());
+    assertEquals(List.of(0, 1, 2, 3, 4),
+        results.stream().map(BatchItemResponse::getIndex).toList());
+    assertTrue(results.get(1).getErrors().containsKey("clientFullName"));
+    assertEquals("Room 101 is already booked on " + date,
+        results.get(2).getErrors().get("reservationDates"));
+    assertEquals("Bob Ray", results.get(4).getReservation().getClientFullName());
+    verify(fileOperations, times(1)).appendAllToFile(argThat(accepted -> accepted.size() == 2));
+    verify(fileOperations, never()).appendToFile(any());
+    assertEquals(3, reservationService.getAllReservations().size());
+  }
+
+  @Test
+  void testCreateReservations_NothingCreatedWhenPersistenceFails() {
+    LocalDate date = LocalDate.now();
+    doThrow(new ServiceException("Error appending to journal"))
+        .when(fileOperations).appendAllToFile(any());
+
+    assertThrows(ServiceException.class, () -> reservationService.createReservations(List.of(
+        request("John Doe", 101, List.of(date)),
+        request("Jane Smith", 102, List.of(date)))));
+
+    assertTrue(reservationService.getAllReservations().isEmpty());
+    assertTrue(reservationService.getAvailability(101, date, date).getBookedDates().isEmpty());
+  }
+
+  @Test
+  void testCreateReservations_TooManyRequests() {
+    List<ReservationRequest> requests = Collections.nCopies(1001,
+        request("John Doe", 101, List.of(LocalDate.now())));
+
+    assertThrows(BadRequestException.class,
+        () -> reservationService.createReservations(requests));
+    verifyNoInteractions(fileOperations);
+  }
+
+  @Test
+  void testUpdateReservation_RoomAlreadyBooked() {
+    LocalDate date = LocalDate.now();
+    reservationService.createReservation(request("John Doe", 101, List.of(date)));
+    ReservationResponse other = reservationService.createReservation(
+        request("Jane Smith", 102, List.of(date)));
+
+    assertThrows(ConflictException.class, () -> reservationService.updateReservation(
+        other.getId(), request("Jane Smith", 101, List.of(date))));
+
+    AvailabilityResponse availability = reservationService.getAvailability(102, date, date);
+    assertEquals(List.of(date), availability.getBookedDates());
+  }
+
+  @Test
+  void testUpdateReservation_KeepsOwnDates() {
+    LocalDate date = LocalDate.now();
+    ReservationResponse created = reservationService.createReservation(
+        request("John Doe", 101, List.of(date)));
+
+    ReservationResponse updated = reservationService.updateReservation(created.getId(),
+        request("John Doe", 101, List.of(date, date.plusDays(1))));
+
+    assertEquals(List.of(date, date.plusDays(1)), updated.getReservationDates());
+  }
+
+  @Test
+  void testUpdateReservation_UnsupportedDateKeepsBooking() {
+    LocalDate date = LocalDate.now();
+    ReservationResponse created = reservationService.createReservation(
+        request("John Doe", 101, List.of(date)));
+
+    assertThrows(BadRequestException.class, () -> reservationService.updateReservation(
+        created.getId(), request("John Doe", 101, List.of(LocalDate.of(1969, 12, 31)))));
+
+    assertEquals(List.of(date), reservationService.getAvailability(101, date, date)
+        .getBookedDates());
+    assertThrows(ConflictException.class, () -> reservationService.createReservation(
+        request("Jane Smith", 101, List.of(date))));
+  }
+
+  @Test
+  void testGetAvailability() {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(from.plusDays(1), from.plusDays(2))));
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(from)));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    AvailabilityResponse availability = reservationService.getAvailability(101, from,
+        from.plusDays(3));
+
+    assertEquals(101, availability.getRoomNumber());
+    assertEquals(List.of(from.plusDays(1), from.plusDays(2)), availability.getBookedDates());
+    assertEquals(List.of(from, from.plusDays(3)), availability.getAvailableDates());
+  }
+
+  @Test
+  void testGetAvailability_EarlierBookingAfterLaterOne() {
+    LocalDate later = LocalDate.of(2026, 6, 1);
+    LocalDate earlier = LocalDate.of(2025, 1, 1);
+    reservationService.createReservation(request("John Doe", 101, List.of(later)));
+    reservationService.createReservation(request("Jane Smith", 101, List.of(earlier)));
+
+    assertEquals(List.of(earlier),
+        reservationService.getAvailability(101, earlier, earlier.plusDays(1)).getBookedDates());
+    assertEquals(List.of(later),
+        reservationService.getAvailability(101, later.minusDays(1), later).getBookedDates());
+    assertThrows(ConflictException.class,
+        () -> reservationService.createReservation(request("Max Power", 101, List.of(later))));
+  }
+
+  @Test
+  void testGetAvailability_InvalidRange() {
+    LocalDate date = LocalDate.now();
+
+    assertThrows(BadRequestException.class,
+        () -> reservationService.getAvailability(101, date, date.minusDays(1)));
+    assertThrows(BadRequestException.class,
+        () -> reservationService.getAvailability(101, date, date.plusYears(2)));
+  }
+
+  @Test
+  void testFindReservations() {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(from, from.plusDays(1))));
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(from.plusDays(1))));
+    data.add(new Reservation(3, "Max Power", 101, List.of(from.plusDays(5))));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    assertEquals(List.of(1), ids(reservationService.findReservations(101, from,
+        from.plusDays(2))));
+    assertEquals(List.of(1, 2), ids(reservationService.findReservations(null,
+        from.plusDays(1), from.plusDays(1))));
+    assertEquals(List.of(1, 2, 3), ids(reservationService.findReservations(null, from,
+        from.plusDays(5))));
+    assertTrue(reservationService.findReservations(102, from.plusDays(2), from.plusDays(4))
+        .isEmpty());
+  }
+
+  @Test
+  void testFindReservations_FollowsUpdates() {
+    LocalDate date = LocalDate.of(2026, 1, 1);
+    ReservationResponse created = reservationService.createReservation(
+        request("John Doe", 101, List.of(date)));
+
+    reservationService.updateReservation(created.getId(),
+        request("John Doe", 102, List.of(date.plusDays(3))));
+
+    assertTrue(reservationService.findReservations(101, date, date.plusDays(3)).isEmpty());
+    assertTrue(reservationService.findReservations(null, date, date).isEmpty());
+    assertEquals(List.of(created.getId()),
+        ids(reservationService.findReservations(102, date, date.plusDays(3))));
+    assertEquals(List.of(created.getId()),
+        ids(reservationService.findReservations(null, date.plusDays(3), date.plusDays(3))));
+  }
+
+  @Test
+  void testFindReservations_InvalidRange() {
+    LocalDate date = LocalDate.now();
+
+    assertThrows(BadRequestException.class,
+        () -> reservationService.findReservations(101, date, date.minusDays(1)));
+    assertThrows(BadRequestException.class,
+        () -> reservationService.findReservations(null, date, date.plusYears(2)));
+  }
+
+  @Test
+  void testGetOccupancy() {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(from, from.plusDays(1))));
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(from.plusDays(1))));
+    data.add(new Reservation(3, "Max Power", 103, List.of(from.plusDays(600))));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+    ReservationResponse created = reservationService.createReservation(
+        request("Ana Lopez", 104, List.of(from.plusDays(2))));
+    reservationService.updateReservation(2, request("Jane Smith", 102, List.of(from.plusDays(2))));
+
+    OccupancyResponse occupancy = reservationService.getOccupancy(from.minusDays(1),
+        from.plusDays(3));
+    assertEquals(4, occupancy.getRooms());
+    assertEquals(4, occupancy.getRoomNights());
+    assertEquals(List.of(0, 1, 1, 2, 0), occupancy.getDays().stream()
+        .map(DailyOccupancy::getBookedRooms).toList());
+    assertEquals(from.plusDays(2), occupancy.getDays().get(3).getDate());
+    assertEquals(0.5, occupancy.getDays().get(3).getOccupancyRate());
+
+    reservationService.updateReservation(created.getId(),
+        request("Ana Lopez", 104, List.of(from.plusDays(600))));
+    assertEquals(List.of(2), reservationService.getOccupancy(from.plusDays(600),
+        from.plusDays(600)).getDays().stream().map(DailyOccupancy::getBookedRooms).toList());
+    assertEquals(3, reservationService.getOccupancy(from, from.plusDays(3)).getRoomNights());
+  }
+
+  @Test
+  void testGetOccupancy_LoadedRepeatedDate() {
+    LocalDate from = LocalDate.of(2026, 1, 1);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(from, from, from.plusDays(1))));
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(from)));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    OccupancyResponse occupancy = reservationService.getOccupancy(from, from.plusDays(1));
+    assertEquals(3, occupancy.getRoomNights());
+    assertEquals(List.of(2, 1), occupancy.getDays().stream()
+        .map(DailyOccupancy::getBookedRooms).toList());
+
+    reservationService.updateReservation(1, request("John Doe", 101, List.of(from.plusDays(1))));
+    assertEquals(List.of(1, 1), reservationService.getOccupancy(from, from.plusDays(1)).getDays()
+        .stream().map(DailyOccupancy::getBookedRooms).toList());
+  }
+
+  @Test
+  void testGetOccupancy_InvalidRange() {
+    LocalDate date = LocalDate.now();
+
+    assertThrows(BadRequestException.class,
+        () -> reservationService.getOccupancy(date, date.minusDays(1)));
+    assertThrows(BadRequestException.class,
+        () -> reservationService.getOccupancy(date, date.plusYears(2)));
+  }
+
+  @Test
+  void testSearchReservations() {
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Smith", 101, List.of(LocalDate.now())));
+    data.add(new Reservation(2, "Jos\u00e9 N\u00fa\u00f1ez", 102, List.of(LocalDate.now())));
+    data.add(new Reservation(3, "Johanna Goldsmith", 103, List.of(LocalDate.now())));
+    data.add(new Reservation(4, null, 104, List.of(LocalDate.now())));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    assertEquals(List.of(1, 3), ids(reservationService.searchReservations("JOH", false, 50)));
+    assertEquals(List.of(1), ids(reservationService.searchReservations("jo smi", false, 50)));
+    assertEquals(List.of(2), ids(reservationService.searchReservations("jose nun", false, 50)));
+    assertEquals(List.of(1, 3), ids(reservationService.searchReservations("smith", true, 50)));
+    assertEquals(List.of(2), ids(reservationService.searchReservations("\u00daN", true, 50)));
+    assertEquals(List.of(1), ids(reservationService.searchReservations("n smi", true, 50)));
+    assertEquals(List.of(1), ids(reservationService.searchReservations("jo", false, 1)));
+    assertTrue(reservationService.searchReservations("smith", false, 50).stream()
+        .noneMatch(reservation -> reservation.getId() == 3));
+  }
+
+  @Test
+  void testSearchReservations_FollowsUpdates() {
+    ReservationResponse created = reservationService.createReservation(
+        request("John Smith", 101, List.of(LocalDate.now())));
+
+    reservationService.updateReservation(created.getId(),
+        request("Jane Doe", 101, List.of(LocalDate.now())));
+
+    assertTrue(reservationService.searchReservations("john", false, 50).isEmpty());
+    assertEquals(List.of(created.getId()),
+        ids(reservationService.searchReservations("doe", true, 50)));
+  }
+
+  @Test
+  void testSearchReservations_InvalidRequest() {
+    assertThrows(BadRequestException.class,
+        () -> reservationService.searchReservations(" - ", false, 50));
+    assertThrows(BadRequestException.class,
+        () -> reservationService.searchReservations("john", false, 0));
   }
 
   @Test
@@ -109,7 +583,7 @@ class ReservationServiceTest {
     reservationRequest.setRoomNumber(102);
     reservationRequest.setReservationDates(Collections.singletonList(LocalDate.now().plusDays(1)));
 
-    ReservationService reservationServiceSpy = spy(new ReservationService(fileOperations));
+    ReservationService reservationServiceSpy = spy(new ReservationService(fileOperations, validator));
     reservationServiceSpy.loadData(); // Load the mock data
 
     doCallRealMethod().when(reservationServiceSpy)
@@ -123,6 +597,8 @@ class ReservationServiceTest {
     assertEquals(reservationRequest.getRoomNumber(), updatedReservation.getRoomNumber());
     assertEquals(reservationRequest.getReservationDates(),
         updatedReservation.getReservationDates());
+    verify(fileOperations).appendToFile(argThat(
+        reservation -> reservation.getClientFullName().equals("Updated Name")));
   }
 
   @Test
@@ -155,6 +631,33 @@ class ReservationServiceTest {
     assertEquals("Reservation not found", exception.getMessage());
   }
 
+  @Test
+  void testGetReservation_Success() {
+    Reservation reservation = new Reservation(1, "John Doe", 101,
+        Collections.singletonList(LocalDate.now()));
+    Set<Reservation> data = new HashSet<>();
+    data.add(reservation);
+
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    ReservationResponse reservationResponse = reservationService.getReservation(1);
+
+    assertEquals(reservation.getId(), reservationResponse.getId());
+    assertEquals(reservation.getClientFullName(), reservationResponse.getClientFullName());
+    assertEquals(reservation.getRoomNumber(), reservationResponse.getRoomNumber());
+    assertEquals(reservation.getReservationDates(), reservationResponse.getReservationDates());
+  }
+
+  @Test
+  void testGetReservation_ReservationNotFound() {
+    NotFoundException exception = assertThrows(NotFoundException.class,
+        () -> reservationService.getReservation(999));
+
+    assertEquals("Reservation not found", exception.getMessage());
+  }
+
   @Test
   void testGetAllReservations() {
     Reservation reservation = new Reservation(1, "John Doe", 101,
@@ -176,6 +679,93 @@ class ReservationServiceTest {
     assertEquals(reservation.getReservationDates(), reservationResponse.getReservationDates());
   }
 
+  @Test
+  void testUpdateReservation_LoadedDoubleBookingKeepsNightBooked() {
+    LocalDate night = LocalDate.now().plusDays(10);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(night, night.plusDays(1))));
+    data.add(new Reservation(2, "Jane Smith", 101, List.of(night)));
+    when(fileOperations.readFromFile()).thenReturn(data);
+    reservationService.loadData();
+
+    reservationService.updateReservation(1,
+        request("John Doe", 101, List.of(night.plusDays(5))));
+
+    assertEquals(List.of(night),
+        reservationService.getAvailability(101, night, night.plusDays(1)).getBookedDates());
+    assertThrows(ConflictException.class,
+        () -> reservationService.createReservation(request("Max Power", 101, List.of(night))));
+    reservationService.updateReservation(2, request("Jane Smith", 101, List.of(night.plusDays(6))));
+    assertEquals(1, reservationService.createReservation(
+        request("Max Power", 101, List.of(night))).getReservationDates().size());
+  }
+
+  @Test
+  void testFindReservations_LoadedDoubleBooking() {
+    LocalDate night = LocalDate.now().plusDays(10);
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(1, "John Doe", 101, List.of(night, night.plusDays(1))));
+    data.add(new Reservation(2, "Jane Smith", 101, List.of(night)));
+    when(fileOperations.readFromFile()).thenReturn(data);
+    reservationService.loadData();
+
+    assertEquals(List.of(1, 2), ids(reservationService.findReservations(101, night, night)));
+    assertEquals(List.of(1, 2), ids(reservationService.findReservations(null, night, night)));
+
+    reservationService.updateReservation(2,
+        request("Jane Smith", 101, List.of(night.plusDays(6))));
+    assertEquals(List.of(1), ids(reservationService.findReservations(101, night, night)));
+
+    reservationService.updateReservation(1,
+        request("John Doe", 101, List.of(night.plusDays(5))));
+    assertTrue(reservationService.findReservations(101, night, night).isEmpty());
+  }
+
+  @Test
+  void testStreamReservations() {
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now())));
+    data.add(new Reservation(1, "John Doe", 101, List.of(LocalDate.now())));
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    assertEquals(List.of(1, 2), reservationService.streamReservations()
+        .map(ReservationResponse::getId).toList());
+  }
+
+  @Test
+  void testGetReservationPage() {
+    Set<Reservation> data = new HashSet<>();
+    for (int id = 1; id <= 5; id++) {
+      data.add(new Reservation(id, "Guest " + id, 100 + id, List.of(LocalDate.now())));
+    }
+    when(fileOperations.readFromFile()).thenReturn(data);
+
+    reservationService.loadData();
+
+    ReservationPage firstPage = reservationService.getReservationPage(2, null);
+    ReservationPage secondPage = reservationService.getReservationPage(2,
+        firstPage.getNextCursor());
+    ReservationPage lastPage = reservationService.getReservationPage(2,
+        secondPage.getNextCursor());
+
+    assertEquals(List.of(1, 2), firstPage.getReservations().stream()
+        .map(ReservationResponse::getId).toList());
+    assertEquals(List.of(3, 4), secondPage.getReservations().stream()
+        .map(ReservationResponse::getId).toList());
+    assertEquals(List.of(5), lastPage.getReservations().stream()
+        .map(ReservationResponse::getId).toList());
+    assertNull(lastPage.getNextCursor());
+  }
+
+  @Test
+  void testGetReservationPage_InvalidLimit() {
+    assertThrows(BadRequestException.class, () -> reservationService.getReservationPage(0, null));
+    assertThrows(BadRequestException.class,
+        () -> reservationService.getReservationPage(100_000, null));
+  }
+
   @Test
   void testGetAllReservations_EmptyReservationsSet() {
 
@@ -187,4 +777,107 @@ class ReservationServiceTest {
 
     assertTrue(reservations.isEmpty());
   }
+
+  @Test
+  void testCreateReservation_DeferredToCheckpointer() {
+    ReservationService checkpointing = new ReservationService(fileOperations,
+        IdAllocator.inMemory(), validator, Duration.ofHours(1), 10, false);
+
+    ReservationResponse created = checkpointing.createReservation(
+        request("John Doe", 101, List.of(LocalDate.now())));
+    checkpointing.updateReservation(created.getId(),
+        request("John Doe", 102, List.of(LocalDate.now())));
+
+    verify(fileOperations, never()).appendToFile(any());
+    verify(fileOperations, never()).appendAllToFile(any());
+    assertEquals(102, checkpointing.getReservation(created.getId()).getRoomNumber());
+  }
+
+  @Test
+  void testLoadData_InBackground() throws Exception {
+    CountDownLatch firstChunkLoaded = new CountDownLatch(1);
+    CountDownLatch releaseSecondChunk = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      Consumer<Collection<Reservation>> consumer = invocation.getArgument(0);
+      consumer.accept(List.of(new Reservation(1, "John Doe", 101, List.of(LocalDate.now()))));
+      firstChunkLoaded.countDown();
+      releaseSecondChunk.await();
+      consumer.accept(List.of(new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now()))));
+      return null;
+    }).when(fileOperations).readChunks(any());
+    ReservationService background = new ReservationService(fileOperations,
+        IdAllocator.inMemory(), validator, Duration.ZERO, 1, true);
+
+    background.loadData();
+    assertTrue(firstChunkLoaded.await(10, TimeUnit.SECONDS));
+    assertEquals(1, background.getAllReservations().size());
+
+    CompletableFuture<ReservationResponse> conflicting = CompletableFuture.supplyAsync(
+        () -> background.createReservation(request("Max Power", 102, List.of(LocalDate.now()))));
+    assertThrows(TimeoutException.class, () -> conflicting.get(200, TimeUnit.MILLISECONDS));
+    releaseSecondChunk.countDown();
+
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> conflicting.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(ConflictException.class, exception.getCause());
+    assertEquals(2, background.getAllReservations().size());
+  }
+
+  @Test
+  void testOffHeapStore() {
+    Set<Reservation> data = new HashSet<>();
+    data.add(new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now())));
+    data.add(new Reservation(1, "John Doe", 101, List.of(LocalDate.now())));
+    when(fileOperations.readFromFile()).thenReturn(data);
+    ReservationService offHeap = new ReservationService(fileOperations, IdAllocator.inMemory(),
+        validator, Duration.ZERO, 1, false, true);
+    offHeap.loadData();
+
+    ReservationResponse created = offHeap.createReservation(
+        request("Max Power", 103, List.of(LocalDate.now())));
+    offHeap.updateReservation(1, request("John Doe", 104, List.of(LocalDate.now())));
+
+    assertEquals(104, offHeap.getReservation(1).getRoomNumber());
+    assertEquals(List.of(1, 2, created.getId()), ids(offHeap.getAllReservations()));
+    assertThrows(ConflictException.class, () -> offHeap.updateReservation(2,
+        request("Jane Smith", 104, List.of(LocalDate.now()))));
+    assertEquals(List.of(2), ids(offHeap.getReservationPage(1, 1).getReservations()));
+
+    offHeap.saveData();
+    verify(fileOperations).writeToFile(Set.of(
+        new Reservation(1, "John Doe", 104, List.of(LocalDate.now())),
+        new Reservation(2, "Jane Smith", 102, List.of(LocalDate.now())),
+        new Reservation(created.getId(), "Max Power", 103, List.of(LocalDate.now()))));
+  }
+
+  @Test
+  void testBindTo_RecordsOperationsAndStoreSize() {
+    when(fileOperations.readFromFile()).thenReturn(new HashSet<>());
+    MeterRegistry registry = new SimpleMeterRegistry();
+    reservationService.bindTo(registry);
+    reservationService.loadData();
+
+    reservationService.createReservation(request("John Doe", 101, List.of(LocalDate.now())));
+    assertThrows(NotFoundException.class, () -> reservationService.updateReservation(42,
+        request("Jane Smith", 102, List.of(LocalDate.now()))));
+
+    for (String operation : List.of("create", "update")) {
+      assertEquals(1, registry.get("reservation.operation.duration")
+          .tag("operation", operation).timer().count(), operation);
+    }
+    assertEquals(1, registry.get("reservation.store.size").gauge().value());
+  }
+
+  private static List<Integer> ids(List<ReservationResponse> reservations) {
+    return reservations.stream().map(ReservationResponse::getId).toList();
+  }
+
+  private static ReservationRequest request(String clientFullName, Integer roomNumber,
+      List<LocalDate> reservationDates) {
+    ReservationRequest reservationRequest = new ReservationRequest();
+    reservationRequest.setClientFullName(clientFullName);
+    reservationRequest.setRoomNumber(roomNumber);
+    reservationRequest.setReservationDates(reservationDates);
+    return reservationRequest;
+  }
 }